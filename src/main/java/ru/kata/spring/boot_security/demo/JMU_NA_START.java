@@ -3,6 +3,7 @@ package ru.kata.spring.boot_security.demo;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import ru.kata.spring.boot_security.demo.repository.UserRepository;
@@ -11,6 +12,7 @@ import ru.kata.spring.boot_security.demo.repository.UserRepository;
 @EnableJpaRepositories(basePackageClasses = UserRepository.class)
 @SpringBootApplication
 @EnableTransactionManagement
+@EnableScheduling
 public class JMU_NA_START {
 
     public static void main(String[] args) {
@@ -0,0 +1,115 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.kata.spring.boot_security.demo.datasource.Bulkhead;
+import ru.kata.spring.boot_security.demo.datasource.UseBulkhead;
+import ru.kata.spring.boot_security.demo.models.InvalidationRecord;
+import ru.kata.spring.boot_security.demo.repository.InvalidationRecordRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Default transport: appends events to the {@code cache_invalidations} table and polls it
+ * for rows newer than the last one seen. Needs nothing beyond the application database.
+ * <p>
+ * Ids are assigned at insert but become visible at commit, so two nodes can commit out of
+ * id order and a poll can see id 12 before 11. Every id skipped over is remembered as a
+ * gap and looked up again on each poll until it shows up or
+ * {@code app.cache.invalidation.db.gap-timeout} passes (a rolled back insert never will).
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.invalidation.transport", havingValue = "db", matchIfMissing = true)
+public class DbPollingInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(DbPollingInvalidationTransport.class);
+    private static final int MAX_GAPS = 10_000;
+
+    private final InvalidationRecordRepository repository;
+    private final Duration retention;
+    private volatile Consumer<InvalidationEvent> receiver = event -> {};
+    private final long gapTimeoutNanos;
+    private long lastSeenId = -1;
+    // missing id -> System.nanoTime() when it was skipped
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+
+    public DbPollingInvalidationTransport(InvalidationRecordRepository repository,
+                                          @Value("${app.cache.invalidation.db.retention:PT10M}") Duration retention,
+                                          @Value("${app.cache.invalidation.db.gap-timeout:PT1M}") Duration gapTimeout) {
+        this.repository = repository;
+        this.retention = retention;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+    }
+
+    @Override
+    public void send(InvalidationEvent event) {
+        String payload = new String(event.encode(InvalidationRecord.MAX_PAYLOAD), StandardCharsets.UTF_8);
+        repository.save(new InvalidationRecord(payload, Instant.now()));
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationEvent> receiver) {
+        this.receiver = receiver;
+    }
+
+    @UseBulkhead(Bulkhead.INVALIDATION)
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.db.poll-interval:500}")
+    public synchronized void poll() {
+        if (lastSeenId < 0) {
+            // only changes made after this node started are relevant, its caches start empty
+            lastSeenId = repository.findMaxId().orElse(0L);
+            return;
+        }
+        if (!gaps.isEmpty()) {
+            for (InvalidationRecord record : repository.findByIdIn(new ArrayList<>(gaps.keySet()))) {
+                gaps.remove(record.getId());
+                deliver(record);
+            }
+            long expiredBefore = System.nanoTime() - gapTimeoutNanos;
+            gaps.values().removeIf(skippedAt -> skippedAt - expiredBefore < 0);
+        }
+        for (InvalidationRecord record : repository.findTop500ByIdGreaterThanOrderByIdAsc(lastSeenId)) {
+            long now = System.nanoTime();
+            for (long missing = lastSeenId + 1; missing < record.getId(); missing++) {
+                if (gaps.size() >= MAX_GAPS) {
+                    logger.atWarn().setMessage("invalidation.gaps.overflow").addKeyValue("skippedFrom", missing).log();
+                    break;
+                }
+                gaps.put(missing, now);
+            }
+            lastSeenId = record.getId();
+            deliver(record);
+        }
+    }
+
+    int pendingGaps() {
+        return gaps.size();
+    }
+
+    private void deliver(InvalidationRecord record) {
+        try {
+            receiver.accept(InvalidationEvent.decode(record.getPayload()));
+        } catch (RuntimeException e) {
+            logger.atWarn().setMessage("invalidation.unreadable")
+                    .addKeyValue("recordId", record.getId())
+                    .addKeyValue("error", e::toString)
+                    .log();
+        }
+    }
+
+    @UseBulkhead(Bulkhead.BACKGROUND)
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.db.cleanup-interval:60000}")
+    public void purgeExpired() {
+        repository.deleteOlderThan(Instant.now().minus(retention));
+    }
+}
@@ -0,0 +1,141 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.kata.spring.boot_security.demo.datasource.Bulkhead;
+import ru.kata.spring.boot_security.demo.datasource.UseBulkhead;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Entry point for service writes that make cached user, principal or role data stale.
+ * <p>
+ * Changes made inside a transaction are collected and released only after commit, so
+ * a rolled back edit never invalidates anything. This node's caches are cleared right
+ * away; the outgoing message is coalesced with other commits and sent every
+ * {@code app.cache.invalidation.flush-interval} milliseconds.
+ */
+@Component
+public class InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private final List<InvalidationListener> listeners;
+    private final InvalidationTransport transport;
+    private final InvalidationMetrics metrics;
+    private final String nodeId;
+    private final Object outboundLock = new Object();
+    private InvalidationEvent outbound;
+
+    public InvalidationBus(List<InvalidationListener> listeners,
+                           InvalidationTransport transport,
+                           InvalidationMetrics metrics,
+                           @Value("${app.cache.invalidation.node-id:}") String nodeId) {
+        this.listeners = listeners;
+        this.transport = transport;
+        this.metrics = metrics;
+        this.nodeId = nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId;
+        this.outbound = InvalidationEvent.empty(this.nodeId);
+        transport.subscribe(this::receive);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void userChanged(Long userId, String... emails) {
+        Set<String> changed = new LinkedHashSet<>();
+        for (String email : emails) {
+            if (email != null) {
+                changed.add(email);
+            }
+        }
+        publish(new InvalidationEvent(nodeId, 0L,
+                userId == null ? Set.of() : Set.of(userId), changed, 0L, false));
+    }
+
+    public void roleCatalogueChanged() {
+        publish(new InvalidationEvent(nodeId, 0L, Set.of(), Set.of(), System.currentTimeMillis(), false));
+    }
+
+    /**
+     * Refreshes this node's role caches only, for a change another node made whose
+     * invalidation never arrived (see RoleCatalogueWatcher).
+     */
+    public void roleCatalogueChangedLocally() {
+        apply(new InvalidationEvent(nodeId, 0L, Set.of(), Set.of(), System.currentTimeMillis(), false));
+    }
+
+    private void publish(InvalidationEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commit(event);
+            return;
+        }
+        InvalidationEvent pending = (InvalidationEvent) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            TransactionSynchronizationManager.unbindResource(this);
+            TransactionSynchronizationManager.bindResource(this, pending.merge(event));
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, event);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                InvalidationEvent collected = (InvalidationEvent) TransactionSynchronizationManager.unbindResourceIfPossible(InvalidationBus.this);
+                if (status == STATUS_COMMITTED && collected != null) {
+                    commit(collected);
+                }
+            }
+        });
+    }
+
+    private void commit(InvalidationEvent event) {
+        apply(event);
+        synchronized (outboundLock) {
+            outbound = outbound.merge(event);
+        }
+    }
+
+    @UseBulkhead(Bulkhead.INVALIDATION)
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.flush-interval:20}")
+    public void flush() {
+        InvalidationEvent event;
+        synchronized (outboundLock) {
+            if (outbound.isEmpty()) {
+                return;
+            }
+            event = outbound.publishedAt(System.currentTimeMillis());
+            outbound = InvalidationEvent.empty(nodeId);
+        }
+        try {
+            transport.send(event);
+            metrics.published();
+        } catch (RuntimeException e) {
+            // the other nodes fall back to principal TTL expiry and RoleCatalogueWatcher for this batch
+            metrics.sendFailed();
+            logger.atWarn().setMessage("invalidation.send.failed").addKeyValue("error", e::toString).log();
+        }
+    }
+
+    void receive(InvalidationEvent event) {
+        if (nodeId.equals(event.originNode())) {
+            return;
+        }
+        metrics.received(System.currentTimeMillis() - event.publishedAtMillis());
+        apply(event);
+    }
+
+    private void apply(InvalidationEvent event) {
+        for (InvalidationListener listener : listeners) {
+            listener.onInvalidation(event);
+        }
+    }
+}
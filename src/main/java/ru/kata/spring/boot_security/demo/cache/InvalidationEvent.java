@@ -0,0 +1,80 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * What other nodes must drop from their caches. Several writes are merged into one
+ * event before it is sent, so a bulk edit costs one message, not one per user.
+ *
+ * @param roleCatalogueVersion 0 when the role catalogue did not change
+ * @param all                  drop everything; used when the id/email lists would not fit one message
+ */
+public record InvalidationEvent(String originNode,
+                                long publishedAtMillis,
+                                Set<Long> userIds,
+                                Set<String> emails,
+                                long roleCatalogueVersion,
+                                boolean all) {
+
+    public static InvalidationEvent empty(String originNode) {
+        return new InvalidationEvent(originNode, 0L, Set.of(), Set.of(), 0L, false);
+    }
+
+    public boolean isEmpty() {
+        return !all && roleCatalogueVersion == 0 && userIds.isEmpty() && emails.isEmpty();
+    }
+
+    public InvalidationEvent merge(InvalidationEvent other) {
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        ids.addAll(other.userIds);
+        Set<String> mergedEmails = new LinkedHashSet<>(emails);
+        mergedEmails.addAll(other.emails);
+        return new InvalidationEvent(originNode, Math.max(publishedAtMillis, other.publishedAtMillis),
+                ids, mergedEmails, Math.max(roleCatalogueVersion, other.roleCatalogueVersion), all || other.all);
+    }
+
+    public InvalidationEvent publishedAt(long millis) {
+        return new InvalidationEvent(originNode, millis, userIds, emails, roleCatalogueVersion, all);
+    }
+
+    /**
+     * Line-based wire format shared by all transports: a header line, a line of user ids,
+     * then one email per line (emails cannot contain a line break).
+     */
+    public String encode() {
+        return originNode + ' ' + publishedAtMillis + ' ' + roleCatalogueVersion + ' ' + (all ? 1 : 0) + '\n'
+                + userIds.stream().map(String::valueOf).collect(Collectors.joining(",")) + '\n'
+                + String.join("\n", emails);
+    }
+
+    /**
+     * Encodes the event, replacing the id and email lists with the {@code all} flag if
+     * the result would be longer than {@code maxBytes}.
+     */
+    public byte[] encode(int maxBytes) {
+        byte[] bytes = encode().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= maxBytes) {
+            return bytes;
+        }
+        return new InvalidationEvent(originNode, publishedAtMillis, Set.of(), Set.of(), roleCatalogueVersion, true)
+                .encode().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static InvalidationEvent decode(String payload) {
+        String[] lines = payload.split("\n", -1);
+        String[] header = lines[0].split(" ");
+        Set<Long> ids = lines.length < 2 || lines[1].isEmpty()
+                ? Collections.emptySet()
+                : Arrays.stream(lines[1].split(",")).map(Long::valueOf).collect(Collectors.toSet());
+        Set<String> emails = lines.length < 3
+                ? Collections.emptySet()
+                : Arrays.stream(lines, 2, lines.length).filter(s -> !s.isEmpty()).collect(Collectors.toSet());
+        return new InvalidationEvent(header[0], Long.parseLong(header[1]), ids, emails,
+                Long.parseLong(header[2]), "1".equals(header[3]));
+    }
+}
@@ -0,0 +1,8 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+/**
+ * A node-local cache that must forget entries when users or roles change on any node.
+ */
+public interface InvalidationListener {
+    void onInvalidation(InvalidationEvent event);
+}
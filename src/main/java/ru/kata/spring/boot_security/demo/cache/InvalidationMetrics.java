@@ -0,0 +1,47 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the invalidation bus. Delivery lag is the receiver's clock minus the
+ * sender's publish time, so it is only as accurate as NTP between the nodes.
+ */
+@Component
+public class InvalidationMetrics {
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder lagTotalMillis = new LongAdder();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    void published() {
+        published.increment();
+    }
+
+    void sendFailed() {
+        sendFailures.increment();
+    }
+
+    void received(long lagMillis) {
+        long lag = Math.max(0, lagMillis);
+        received.increment();
+        lagTotalMillis.add(lag);
+        lastLagMillis.set(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+    }
+
+    public Snapshot snapshot() {
+        long count = received.sum();
+        return new Snapshot(published.sum(), count, sendFailures.sum(),
+                lastLagMillis.get(), maxLagMillis.get(), count == 0 ? 0 : lagTotalMillis.sum() / count);
+    }
+
+    public record Snapshot(long published, long received, long sendFailures,
+                           long lastLagMillis, long maxLagMillis, long averageLagMillis) {
+    }
+}
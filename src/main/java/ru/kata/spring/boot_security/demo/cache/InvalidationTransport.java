@@ -0,0 +1,17 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries invalidation events between nodes. Selected with
+ * {@code app.cache.invalidation.transport} ({@code db} or {@code multicast}).
+ */
+public interface InvalidationTransport {
+
+    void send(InvalidationEvent event);
+
+    /**
+     * Registers the receiver for events published by any node, including this one.
+     */
+    void subscribe(Consumer<InvalidationEvent> receiver);
+}
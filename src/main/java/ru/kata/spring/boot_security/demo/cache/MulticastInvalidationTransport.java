@@ -0,0 +1,91 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * UDP multicast transport for nodes on one LAN segment. Delivery is best effort: a lost
+ * datagram leaves a principal stale until its TTL runs out, and the role catalogue until
+ * the next RoleCatalogueWatcher check.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.invalidation.transport", havingValue = "multicast")
+public class MulticastInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(MulticastInvalidationTransport.class);
+    // stays under a typical 1500 byte MTU after IP and UDP headers
+    private static final int MAX_DATAGRAM = 1400;
+
+    private final InetSocketAddress group;
+    private final MulticastSocket socket;
+    private final Thread listenerThread;
+    private volatile Consumer<InvalidationEvent> receiver = event -> {};
+    private volatile boolean running = true;
+
+    public MulticastInvalidationTransport(@Value("${app.cache.invalidation.multicast.group:239.255.27.1}") String group,
+                                          @Value("${app.cache.invalidation.multicast.port:45566}") int port,
+                                          @Value("${app.cache.invalidation.multicast.interface:}") String interfaceName,
+                                          @Value("${app.cache.invalidation.multicast.ttl:1}") int ttl) throws IOException {
+        this.group = new InetSocketAddress(InetAddress.getByName(group), port);
+        this.socket = new MulticastSocket(port);
+        this.socket.setTimeToLive(ttl);
+        NetworkInterface networkInterface = interfaceName.isEmpty() ? null : NetworkInterface.getByName(interfaceName);
+        this.socket.joinGroup(this.group, networkInterface);
+        this.listenerThread = new Thread(this::listen, "cache-invalidation-multicast");
+        this.listenerThread.setDaemon(true);
+        this.listenerThread.start();
+    }
+
+    @Override
+    public void send(InvalidationEvent event) {
+        byte[] data = event.encode(MAX_DATAGRAM);
+        try {
+            socket.send(new DatagramPacket(data, data.length, group));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationEvent> receiver) {
+        this.receiver = receiver;
+    }
+
+    private void listen() {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                receiver.accept(InvalidationEvent.decode(
+                        new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                if (running) {
+                    logger.atWarn().setMessage("invalidation.receive.failed").addKeyValue("error", e::toString).log();
+                }
+            } catch (RuntimeException e) {
+                logger.atWarn().setMessage("invalidation.unreadable").addKeyValue("error", e::toString).log();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        socket.close();
+    }
+}
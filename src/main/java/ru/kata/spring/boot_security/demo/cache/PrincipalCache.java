@@ -0,0 +1,80 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-local cache of the UserDetails built for a login, keyed by email.
+ * <p>
+ * Callers take a {@link #stamp()} before loading from the database and hand it back to
+ * {@link #put}; if an invalidation arrived in between, the freshly loaded (and possibly
+ * already stale) entry is not stored.
+ */
+@Component
+public class PrincipalCache implements InvalidationListener {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    public PrincipalCache(@Value("${app.cache.principal.ttl:PT5M}") Duration ttl,
+                          @Value("${app.cache.principal.max-entries:10000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns a copy: the authentication manager erases the password of the principal it
+     * was given, which must not reach the cached instance.
+     */
+    public Optional<UserDetails> get(String email) {
+        Entry entry = entries.get(email);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (System.nanoTime() - entry.loadedAt > ttlNanos) {
+            entries.remove(email, entry);
+            return Optional.empty();
+        }
+        return Optional.of(User.withUserDetails(entry.details).build());
+    }
+
+    public long stamp() {
+        return generation.get();
+    }
+
+    public void put(long stamp, Long userId, UserDetails details) {
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        entries.put(details.getUsername(), new Entry(userId, User.withUserDetails(details).build(), System.nanoTime()));
+        if (generation.get() != stamp) {
+            entries.remove(details.getUsername());
+        }
+    }
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        generation.incrementAndGet();
+        if (event.all() || event.roleCatalogueVersion() != 0) {
+            entries.clear();
+            return;
+        }
+        event.emails().forEach(entries::remove);
+        if (!event.userIds().isEmpty()) {
+            entries.values().removeIf(entry -> event.userIds().contains(entry.userId));
+        }
+    }
+
+    private record Entry(Long userId, UserDetails details, long loadedAt) {
+    }
+}
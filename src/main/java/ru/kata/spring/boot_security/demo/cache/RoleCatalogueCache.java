@@ -0,0 +1,52 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.kata.spring.boot_security.demo.models.Role;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The full role list, which every admin page render asks for and which changes only
+ * when a role is added or renamed. Cleared by role catalogue invalidations; one that is
+ * lost is made up for by RoleCatalogueWatcher.
+ * <p>
+ * A load inside a read-write transaction is not cached: it may see roles that transaction
+ * has not committed, and a rollback publishes no invalidation that would clear them.
+ */
+@Component
+public class RoleCatalogueCache implements InvalidationListener {
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile List<Role> roles;
+
+    public List<Role> get(Supplier<List<Role>> loader) {
+        List<Role> cached = roles;
+        if (cached == null) {
+            long stamp = generation.get();
+            cached = List.copyOf(loader.get());
+            if (TransactionSynchronizationManager.isActualTransactionActive()
+                    && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                return cached;
+            }
+            synchronized (this) {
+                if (generation.get() == stamp) {
+                    roles = cached;
+                }
+            }
+        }
+        return cached;
+    }
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.all() || event.roleCatalogueVersion() != 0) {
+            synchronized (this) {
+                generation.incrementAndGet();
+                roles = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.kata.spring.boot_security.demo.datasource.Bulkhead;
+import ru.kata.spring.boot_security.demo.datasource.UseBulkhead;
+import ru.kata.spring.boot_security.demo.models.Role;
+import ru.kata.spring.boot_security.demo.repository.RoleRepository;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Bounds how long a lost role catalogue invalidation can go unnoticed. RoleCatalogueCache
+ * and RoleBitRegistry have no TTL, so every {@code app.cache.role-catalogue.check-interval}
+ * the roles table is compared with the previous check and, if it changed, this node's
+ * role caches are refreshed as if the invalidation had arrived.
+ */
+@Component
+public class RoleCatalogueWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleCatalogueWatcher.class);
+
+    private final RoleRepository roleRepository;
+    private final InvalidationBus invalidationBus;
+    private Set<String> seen;
+
+    public RoleCatalogueWatcher(RoleRepository roleRepository, InvalidationBus invalidationBus) {
+        this.roleRepository = roleRepository;
+        this.invalidationBus = invalidationBus;
+    }
+
+    // before DataInitializer loads the role caches, so a change made after that is caught by the first check
+    @PostConstruct
+    void init() {
+        seen = catalogue();
+    }
+
+    @UseBulkhead(Bulkhead.BACKGROUND)
+    @Scheduled(fixedDelayString = "${app.cache.role-catalogue.check-interval:PT30S}",
+            initialDelayString = "${app.cache.role-catalogue.check-interval:PT30S}")
+    public synchronized void check() {
+        Set<String> current = catalogue();
+        if (!current.equals(seen)) {
+            logger.atInfo().setMessage("role.catalogue.changed").addKeyValue("roles", current::size).log();
+            seen = current;
+            invalidationBus.roleCatalogueChangedLocally();
+        }
+    }
+
+    private Set<String> catalogue() {
+        Set<String> catalogue = new HashSet<>();
+        for (Role role : roleRepository.findAll()) {
+            catalogue.add(role.getName() + '=' + role.getBitPosition());
+        }
+        return catalogue;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import ru.kata.spring.boot_security.demo.datasource.Bulkhead;
+import ru.kata.spring.boot_security.demo.datasource.BulkheadInterceptor;
+import ru.kata.spring.boot_security.demo.datasource.BulkheadRoutingDataSource;
+import ru.kata.spring.boot_security.demo.datasource.UseBulkhead;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    public BulkheadRoutingDataSource dataSource(DataSourceProperties properties, Environment environment) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource defaultPool = createPool(properties, binder, "default");
+
+        Map<Bulkhead, BulkheadRoutingDataSource.Pool> pools = new EnumMap<>(Bulkhead.class);
+        for (Bulkhead bulkhead : Bulkhead.values()) {
+            String prefix = "app.datasource.bulkheads." + bulkhead.key();
+            HikariDataSource pool = createPool(properties, binder, bulkhead.key());
+            // small and fail-fast unless configured otherwise; spring.datasource.hikari sizes only the default pool
+            pool.setMaximumPoolSize(2);
+            pool.setMinimumIdle(1);
+            pool.setConnectionTimeout(1000);
+            binder.bind(prefix, Bindable.ofInstance(pool));
+            int maxWaiting = binder.bind(prefix + ".max-waiting", Integer.class).orElse(8);
+            pools.put(bulkhead, new BulkheadRoutingDataSource.Pool(bulkhead.key(), pool, maxWaiting));
+        }
+        return new BulkheadRoutingDataSource(defaultPool, pools);
+    }
+
+    // Runs before the transaction advisor, so the transaction takes its connection from the bulkhead
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor bulkheadAdvisor() {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(UseBulkhead.class, true))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(UseBulkhead.class));
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new BulkheadInterceptor());
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    private static HikariDataSource createPool(DataSourceProperties properties, Binder binder, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        return pool;
+    }
+}
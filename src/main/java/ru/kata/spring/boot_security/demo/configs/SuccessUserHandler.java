@@ -3,6 +3,8 @@ package ru.kata.spring.boot_security.demo.configs;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.stereotype.Component;
+import ru.kata.spring.boot_security.demo.security.RoleBitRegistry;
+import ru.kata.spring.boot_security.demo.security.RoleMaskAuthorities;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -14,17 +16,19 @@ public class SuccessUserHandler implements AuthenticationSuccessHandler {
     private static final String ROLE_ADMIN = "ROLE_ADMIN";
     private static final String ROLE_USER = "ROLE_USER";
 
+    private final RoleBitRegistry roleBitRegistry;
+
+    public SuccessUserHandler(RoleBitRegistry roleBitRegistry) {
+        this.roleBitRegistry = roleBitRegistry;
+    }
+
     @Override
     public void onAuthenticationSuccess(HttpServletRequest request,
                                         HttpServletResponse response,
                                         Authentication authentication) throws IOException {
-        boolean isAdmin = authentication.getAuthorities()
-                .stream()
-                .anyMatch(a -> a.getAuthority().equals(ROLE_ADMIN));
-
-        boolean isUser = authentication.getAuthorities()
-                .stream()
-                .anyMatch(a -> a.getAuthority().equals(ROLE_USER));
+        long roles = RoleMaskAuthorities.maskOf(authentication.getAuthorities());
+        boolean isAdmin = (roles & roleBitRegistry.maskOf(ROLE_ADMIN)) != 0;
+        boolean isUser = (roles & roleBitRegistry.maskOf(ROLE_USER)) != 0;
 
         if (isAdmin) {
             response.sendRedirect("/admin");
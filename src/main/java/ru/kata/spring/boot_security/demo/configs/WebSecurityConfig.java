@@ -1,24 +1,39 @@
 package ru.kata.spring.boot_security.demo.configs;
 
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
-import ru.kata.spring.boot_security.demo.service.UserService;
+import ru.kata.spring.boot_security.demo.cache.PrincipalCache;
+import ru.kata.spring.boot_security.demo.security.BatchingPrincipalLoader;
+import ru.kata.spring.boot_security.demo.security.RequireRoles;
+import ru.kata.spring.boot_security.demo.security.RequireRolesAuthorizationManager;
+import ru.kata.spring.boot_security.demo.security.RoleBitRegistry;
+
+import static ru.kata.spring.boot_security.demo.security.RoleMaskAuthorizationManager.hasAnyRole;
 
 @Configuration
 public class WebSecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   RoleBitRegistry roleBitRegistry,
+                                                   SuccessUserHandler successUserHandler) throws Exception {
         http
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/admin/**").hasRole("ADMIN")
-                        .requestMatchers("/user/**").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers("/admin/**").access(hasAnyRole(roleBitRegistry, "ROLE_ADMIN"))
+                        .requestMatchers("/user/**").access(hasAnyRole(roleBitRegistry, "ROLE_USER", "ROLE_ADMIN"))
                         .requestMatchers("/", "/login").permitAll()
                         .anyRequest().authenticated()
                 )
@@ -26,7 +41,7 @@ public class WebSecurityConfig {
                         .loginPage("/login")
                         .loginProcessingUrl("/process_login")
                         .usernameParameter("email")
-                        .successHandler(new SuccessUserHandler())
+                        .successHandler(successUserHandler)
 //                        .defaultSuccessUrl("/user", true)
                         .failureUrl("/login?error")
                         .permitAll()
@@ -42,14 +57,20 @@ public class WebSecurityConfig {
         return http.build();
     }
 
+    // Enforces @RequireRoles on controllers and services with the same bit test as the URL rules
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor requireRolesAdvisor(ObjectProvider<RoleBitRegistry> roleBitRegistry) {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(RequireRoles.class, true))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(RequireRoles.class));
+        return new AuthorizationManagerBeforeMethodInterceptor(pointcut,
+                new RequireRolesAuthorizationManager(roleBitRegistry));
+    }
+
     @Bean
-    public UserDetailsService userDetailsService(UserService userService) {
-        return email -> userService.findByEmail(email)
-                .map(user -> new org.springframework.security.core.userdetails.User(
-                        user.getEmail(),
-                        user.getPassword(),
-                        userService.mapRolesToAuthorities(user.getRoles())
-                ))
+    public UserDetailsService userDetailsService(PrincipalCache principalCache, BatchingPrincipalLoader principalLoader) {
+        return email -> principalCache.get(email)
+                .or(() -> principalLoader.load(email))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
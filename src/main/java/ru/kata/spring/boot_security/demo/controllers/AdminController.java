@@ -3,17 +3,28 @@ package ru.kata.spring.boot_security.demo.controllers;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import ru.kata.spring.boot_security.demo.cache.InvalidationMetrics;
+import ru.kata.spring.boot_security.demo.datasource.Bulkhead;
+import ru.kata.spring.boot_security.demo.datasource.BulkheadRoutingDataSource;
+import ru.kata.spring.boot_security.demo.datasource.UseBulkhead;
+import ru.kata.spring.boot_security.demo.jobs.UserPurgeJob;
 import ru.kata.spring.boot_security.demo.models.Role;
 import ru.kata.spring.boot_security.demo.models.User;
+import ru.kata.spring.boot_security.demo.security.BatchingPrincipalLoader;
+import ru.kata.spring.boot_security.demo.security.RequireRoles;
 import ru.kata.spring.boot_security.demo.service.RoleService;
+import ru.kata.spring.boot_security.demo.service.RoleStatisticsService;
 import ru.kata.spring.boot_security.demo.service.UserService;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -22,20 +33,34 @@ import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/admin")
-@PreAuthorize("hasRole('ADMIN')")
+@RequireRoles("ROLE_ADMIN")
+@UseBulkhead(Bulkhead.ADMIN)
 public class AdminController {
 
 
     private final UserService userService;
     private final RoleService roleService;
     private final PasswordEncoder passwordEncoder;
+    private final InvalidationMetrics invalidationMetrics;
+    private final UserPurgeJob userPurgeJob;
+    private final RoleStatisticsService roleStatisticsService;
+    private final BulkheadRoutingDataSource dataSource;
+    private final BatchingPrincipalLoader principalLoader;
     private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
 
-    public AdminController(UserService userService, RoleService roleService, PasswordEncoder passwordEncoder) {
+    public AdminController(UserService userService, RoleService roleService, PasswordEncoder passwordEncoder,
+                           InvalidationMetrics invalidationMetrics, UserPurgeJob userPurgeJob,
+                           RoleStatisticsService roleStatisticsService, BulkheadRoutingDataSource dataSource,
+                           BatchingPrincipalLoader principalLoader) {
         this.userService = userService;
         this.roleService = roleService;
         this.passwordEncoder = passwordEncoder;
+        this.invalidationMetrics = invalidationMetrics;
+        this.userPurgeJob = userPurgeJob;
+        this.roleStatisticsService = roleStatisticsService;
+        this.dataSource = dataSource;
+        this.principalLoader = principalLoader;
     }
 
     @GetMapping()
@@ -43,7 +68,6 @@ public class AdminController {
         model.addAttribute("users", userService.getAllUsers());
         model.addAttribute("allRoles", roleService.findAll());
         model.addAttribute("newUser", new User());
-        System.out.println("Роли из БД: " + roleService.findAll()); // отладка 167 строки
         return "admin-panel";
     }
 
@@ -64,9 +88,13 @@ public class AdminController {
                              BindingResult bindingResult,
                              @RequestParam(value = "selectedRoles", required = false) List<String> roleNames,
                              Model model) {
-        logger.info("Attempting to create user: {}", user);
+        logger.atInfo().setMessage("user.create").addKeyValue("username", user.getUsername()).log();
         if (bindingResult.hasErrors()) {
-            logger.error("Validation errors: {}", bindingResult.getAllErrors());
+            // field names only: a FieldError's rejected value may be the submitted password
+            logger.atWarn().setMessage("user.create.invalid")
+                    .addKeyValue("username", user.getUsername())
+                    .addKeyValue("fields", () -> bindingResult.getFieldErrors().stream().map(FieldError::getField).toList())
+                    .log();
             model.addAttribute("users", userService.getAllUsers());
             model.addAttribute("allRoles", roleService.findAll());
             return "admin-panel";
@@ -85,11 +113,13 @@ public class AdminController {
             }
             user.setRoles(roles);
             user.setPassword(passwordEncoder.encode(user.getPassword()));
-            logger.info("Saving user with roles: {}", roles);
             userService.saveUser(user);
             return "redirect:/admin";
         } catch (Exception e) {
-            logger.error("Error creating user", e);
+            logger.atError().setMessage("user.create.failed")
+                    .addKeyValue("username", user.getUsername())
+                    .setCause(e)
+                    .log();
             model.addAttribute("error", e.getMessage());
             model.addAttribute("users", userService.getAllUsers());
             model.addAttribute("allRoles", roleService.findAll());
@@ -100,16 +130,59 @@ public class AdminController {
     @PostMapping("/update")
     public String updateUser(@ModelAttribute("user") @Valid User user,
                              BindingResult bindingResult,
-                             @RequestParam("selectedRoles") List<String> roleNames) {
+                             @RequestParam("selectedRoles") List<String> roleNames,
+                             RedirectAttributes redirectAttributes) {
         if (bindingResult.hasErrors()) {
             return "admin-panel";
         }
         Set<Role> roles = new HashSet<>(roleService.findRolesByNameIn(roleNames));
         user.setRoles(roles);
-        userService.updateUser(user);
+        try {
+            userService.updateUser(user);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            logger.atInfo().setMessage("user.update.conflict").addKeyValue("userId", user.getId()).log();
+            redirectAttributes.addFlashAttribute("error",
+                    "User " + user.getUsername() + " was changed by another administrator. Reload and apply your edit again.");
+        }
         return "redirect:/admin";
     }
 
+    @GetMapping("/cache/invalidation")
+    @ResponseBody
+    public InvalidationMetrics.Snapshot getInvalidationMetrics() {
+        return invalidationMetrics.snapshot();
+    }
+
+    @GetMapping("/cache/principal-loader")
+    @ResponseBody
+    public BatchingPrincipalLoader.Stats getPrincipalLoaderStats() {
+        return principalLoader.stats();
+    }
+
+    @GetMapping("/purge/status")
+    @ResponseBody
+    public UserPurgeJob.PurgeStatus getPurgeStatus() {
+        return userPurgeJob.status();
+    }
+
+    @GetMapping("/db/pools")
+    @ResponseBody
+    public List<BulkheadRoutingDataSource.PoolStats> getPoolStats() {
+        return dataSource.stats();
+    }
+
+    @GetMapping("/stats")
+    public String getStatistics(@RequestParam(value = "days", defaultValue = "30") int days, Model model) {
+        model.addAttribute("stats", roleStatisticsService.getStatistics(Duration.ofDays(days)));
+        return "admin-stats";
+    }
+
+    @GetMapping(value = "/stats", produces = "application/json")
+    @ResponseBody
+    public RoleStatisticsService.Statistics getStatisticsJson(@RequestParam(value = "days", defaultValue = "30") int days) {
+        return roleStatisticsService.getStatistics(Duration.ofDays(days));
+    }
+
     @PostMapping("/delete/{id}")
     public String deleteUser(@PathVariable("id") Long id) {
         userService.deleteUser(id);
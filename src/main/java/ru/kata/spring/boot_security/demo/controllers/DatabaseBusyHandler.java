@@ -0,0 +1,37 @@
+package ru.kata.spring.boot_security.demo.controllers;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Answers 503 with {@code Retry-After} when a request found its connection pool full: the
+ * bulkhead turned it away (max-waiting) or it waited out the pool's connection-timeout.
+ * Both surface as SQLTransientConnectionException wrapped by Hibernate and Spring; any
+ * other failure of the same exception types is left to the default error handling.
+ */
+@ControllerAdvice
+public class DatabaseBusyHandler {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<String> handlePoolExhausted(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body("The server is busy, please retry shortly");
+            }
+        }
+        throw e;
+    }
+}
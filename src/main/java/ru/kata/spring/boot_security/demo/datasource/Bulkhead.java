@@ -0,0 +1,25 @@
+package ru.kata.spring.boot_security.demo.datasource;
+
+/**
+ * Named connection pools next to the default {@code spring.datasource} one. Each is
+ * configured under {@code app.datasource.bulkheads.<key>} with any Hikari property plus
+ * {@code max-waiting}.
+ */
+public enum Bulkhead {
+    LOGIN("login"),
+    ADMIN("admin"),
+    // cache invalidation flush and poll, kept apart from BACKGROUND batch jobs so a purge or
+    // recount cannot delay cross-node invalidations
+    INVALIDATION("invalidation"),
+    BACKGROUND("background");
+
+    private final String key;
+
+    Bulkhead(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.kata.spring.boot_security.demo.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * The bulkhead the current thread takes connections from; none means the default pool.
+ * Must be entered before the transaction starts, since that is when the connection is taken.
+ */
+public final class BulkheadContext {
+
+    private static final ThreadLocal<Bulkhead> current = new ThreadLocal<>();
+
+    private BulkheadContext() {
+    }
+
+    public static Bulkhead current() {
+        return current.get();
+    }
+
+    public static <T> T call(Bulkhead bulkhead, Supplier<T> action) {
+        Bulkhead previous = current.get();
+        current.set(bulkhead);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    static Bulkhead enter(Bulkhead bulkhead) {
+        Bulkhead previous = current.get();
+        current.set(bulkhead);
+        return previous;
+    }
+
+    static void restore(Bulkhead previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.kata.spring.boot_security.demo.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class BulkheadInterceptor implements MethodInterceptor {
+
+    private final Map<Method, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(invocation.getMethod(),
+                method -> resolve(method, invocation.getThis()));
+        Bulkhead previous = BulkheadContext.enter(bulkhead);
+        try {
+            return invocation.proceed();
+        } finally {
+            BulkheadContext.restore(previous);
+        }
+    }
+
+    private Bulkhead resolve(Method method, Object target) {
+        Class<?> targetClass = target == null ? method.getDeclaringClass() : AopUtils.getTargetClass(target);
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        UseBulkhead annotation = AnnotatedElementUtils.findMergedAnnotation(specific, UseBulkhead.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, UseBulkhead.class);
+        }
+        return annotation.value();
+    }
+}
@@ -0,0 +1,156 @@
+package ru.kata.spring.boot_security.demo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out connections from the pool of the current thread's bulkhead (see
+ * BulkheadContext), or from the default pool. A saturated admin or batch pool therefore
+ * cannot starve the login lookup, which has connections of its own.
+ * <p>
+ * Each bulkhead lets at most {@code max-waiting} threads wait for a connection; the next
+ * one fails immediately instead of queueing, and waiters give up after the pool's
+ * {@code connection-timeout}. Both cases raise SQLTransientConnectionException.
+ */
+public class BulkheadRoutingDataSource extends AbstractDataSource implements InitializingBean, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadRoutingDataSource.class);
+
+    private final Pool defaultPool;
+    private final Map<Bulkhead, Pool> pools;
+
+    public BulkheadRoutingDataSource(HikariDataSource defaultPool, Map<Bulkhead, Pool> pools) {
+        this.defaultPool = new Pool("default", defaultPool, 0);
+        this.pools = new EnumMap<>(pools);
+    }
+
+    /**
+     * Starts every pool now rather than on its first request: Hikari fills a pool up to
+     * minimum-idle in the background, so a cold login pool would meet a burst with a single
+     * connection and time out.
+     */
+    @Override
+    public void afterPropertiesSet() throws SQLException {
+        defaultPool.dataSource.getConnection().close();
+        for (Pool pool : pools.values()) {
+            pool.dataSource.getConnection().close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Bulkhead bulkhead = BulkheadContext.current();
+        Pool pool = bulkhead == null ? defaultPool : pools.getOrDefault(bulkhead, defaultPool);
+        return pool.acquire();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Credentials are configured per pool");
+    }
+
+    public List<PoolStats> stats() {
+        List<PoolStats> stats = new ArrayList<>();
+        stats.add(defaultPool.stats());
+        pools.values().forEach(pool -> stats.add(pool.stats()));
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(pool -> pool.dataSource.close());
+        defaultPool.dataSource.close();
+    }
+
+    public static final class Pool {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final int maxWaiting;
+        private final Semaphore waiters;
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        /**
+         * @param maxWaiting threads allowed to wait for a connection at once, 0 for no limit
+         */
+        public Pool(String name, HikariDataSource dataSource, int maxWaiting) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.maxWaiting = maxWaiting;
+            this.waiters = maxWaiting > 0 ? new Semaphore(maxWaiting) : null;
+        }
+
+        Connection acquire() throws SQLException {
+            if (waiters != null && !waiters.tryAcquire()) {
+                rejected.increment();
+                logger.atWarn().setMessage("db.bulkhead.rejected")
+                        .addKeyValue("pool", name)
+                        .addKeyValue("waiting", maxWaiting)
+                        .log();
+                throw new SQLTransientConnectionException(name + " pool has " + maxWaiting + " threads waiting already");
+            }
+            long started = System.nanoTime();
+            try {
+                Connection connection = dataSource.getConnection();
+                long waited = System.nanoTime() - started;
+                acquired.increment();
+                waitNanos.add(waited);
+                maxWaitNanos.accumulateAndGet(waited, Math::max);
+                return connection;
+            } catch (SQLTransientConnectionException e) {
+                timedOut.increment();
+                logger.atWarn().setMessage("db.bulkhead.timeout")
+                        .addKeyValue("pool", name)
+                        .addKeyValue("timeoutMillis", dataSource.getConnectionTimeout())
+                        .log();
+                throw e;
+            } finally {
+                if (waiters != null) {
+                    waiters.release();
+                }
+            }
+        }
+
+        PoolStats stats() {
+            // null until the pool has handed out its first connection
+            HikariPoolMXBean mxBean = dataSource.getHikariPoolMXBean();
+            long count = acquired.sum();
+            return new PoolStats(name,
+                    dataSource.getMaximumPoolSize(),
+                    mxBean == null ? 0 : mxBean.getTotalConnections(),
+                    mxBean == null ? 0 : mxBean.getActiveConnections(),
+                    mxBean == null ? 0 : mxBean.getIdleConnections(),
+                    mxBean == null ? 0 : mxBean.getThreadsAwaitingConnection(),
+                    maxWaiting,
+                    count,
+                    rejected.sum(),
+                    timedOut.sum(),
+                    count == 0 ? 0.0 : waitNanos.sum() / 1_000_000.0 / count,
+                    maxWaitNanos.get() / 1_000_000.0);
+        }
+    }
+
+    public record PoolStats(String pool, int maxConnections, int total, int active, int idle,
+                            int waiting, int maxWaiting, long acquired, long rejected, long timedOut,
+                            double avgWaitMillis, double maxWaitMillis) {
+    }
+}
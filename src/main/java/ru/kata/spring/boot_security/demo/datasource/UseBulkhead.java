@@ -0,0 +1,19 @@
+package ru.kata.spring.boot_security.demo.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated method, or every method of the annotated class, on the given
+ * bulkhead's connection pool. Applied ahead of {@code @Transactional}, so it also covers
+ * transactions the method starts.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface UseBulkhead {
+    Bulkhead value();
+}
@@ -7,6 +7,8 @@ import ru.kata.spring.boot_security.demo.models.Role;
 import ru.kata.spring.boot_security.demo.models.User;
 import ru.kata.spring.boot_security.demo.repository.RoleRepository;
 import ru.kata.spring.boot_security.demo.repository.UserRepository;
+import ru.kata.spring.boot_security.demo.security.RoleBitRegistry;
+import ru.kata.spring.boot_security.demo.service.RoleStatisticsService;
 
 import java.util.Set;
 
@@ -16,13 +18,19 @@ public class DataInitializer implements CommandLineRunner {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final RoleBitRegistry roleBitRegistry;
+    private final RoleStatisticsService roleStatisticsService;
 
     public DataInitializer(UserRepository userRepository,
                            RoleRepository roleRepository,
-                           PasswordEncoder passwordEncoder) {
+                           PasswordEncoder passwordEncoder,
+                           RoleBitRegistry roleBitRegistry,
+                           RoleStatisticsService roleStatisticsService) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.roleBitRegistry = roleBitRegistry;
+        this.roleStatisticsService = roleStatisticsService;
     }
 
     @Override
@@ -33,7 +41,10 @@ public class DataInitializer implements CommandLineRunner {
         Role userRole = roleRepository.findByName("ROLE_USER")
                 .orElseGet(() -> roleRepository.save(new Role("ROLE_USER")));
 
-        if (!userRepository.existsByUsername("admin")) {
+        roleBitRegistry.assignMissingBits();
+
+        // a soft-deleted admin keeps its unique username until purged, so it must not be recreated yet
+        if (userRepository.countIncludingDeleted("admin", "admin@example.com") == 0) {
             User admin = new User();
             admin.setUsername("admin");
             admin.setPassword(passwordEncoder.encode("admin"));
@@ -44,7 +55,7 @@ public class DataInitializer implements CommandLineRunner {
             userRepository.save(admin);
         }
 
-        if (!userRepository.existsByUsername("user")) {
+        if (userRepository.countIncludingDeleted("user", "user@example.com") == 0) {
             User user = new User();
             user.setUsername("user");
             user.setPassword(passwordEncoder.encode("user"));
@@ -54,5 +65,8 @@ public class DataInitializer implements CommandLineRunner {
             user.setLastName("Pukin");
             userRepository.save(user);
         }
+
+        // the users above are written through the repository, not UserService, so the role counters are recounted
+        roleStatisticsService.reconcile();
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package ru.kata.spring.boot_security.demo.jobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.kata.spring.boot_security.demo.datasource.Bulkhead;
+import ru.kata.spring.boot_security.demo.datasource.UseBulkhead;
+import ru.kata.spring.boot_security.demo.service.RoleStatisticsService;
+
+import java.time.Duration;
+
+/**
+ * Recounts role_user_counts from users_roles every {@code app.stats.reconcile-interval} and
+ * records a history snapshot at most once per {@code app.stats.snapshot-interval}.
+ */
+@Component
+public class RoleCountReconciliationJob {
+
+    private final RoleStatisticsService roleStatisticsService;
+    private final Duration snapshotInterval;
+
+    public RoleCountReconciliationJob(RoleStatisticsService roleStatisticsService,
+                                      @Value("${app.stats.snapshot-interval:P1D}") Duration snapshotInterval) {
+        this.roleStatisticsService = roleStatisticsService;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @UseBulkhead(Bulkhead.BACKGROUND)
+    @Scheduled(fixedDelayString = "${app.stats.reconcile-interval:PT1H}", initialDelayString = "${app.stats.reconcile-interval:PT1H}")
+    public void run() {
+        roleStatisticsService.reconcile();
+        roleStatisticsService.snapshotIfOlderThan(snapshotInterval);
+    }
+}
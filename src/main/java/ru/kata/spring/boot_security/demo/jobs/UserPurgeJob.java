@@ -0,0 +1,184 @@
+package ru.kata.spring.boot_security.demo.jobs;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.kata.spring.boot_security.demo.datasource.Bulkhead;
+import ru.kata.spring.boot_security.demo.datasource.BulkheadContext;
+import ru.kata.spring.boot_security.demo.repository.UserRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hard-deletes soft-deleted users. Each batch runs in its own short transaction and the
+ * next one is scheduled after a pause, so row locks on users and users_roles are held only
+ * briefly and logins interleave with a large clean-up instead of queueing behind it.
+ * <p>
+ * Batches run on a scheduler of their own: the shared {@code @Scheduled} thread only
+ * starts a run, so cache invalidation flushes and polls are never held up by a purge.
+ * <p>
+ * Runs only inside {@code app.purge.window} (local time, e.g. {@code 01:00-05:00}; empty
+ * means any time) and only touches rows deleted longer than {@code app.purge.min-age} ago.
+ */
+@Component
+public class UserPurgeJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPurgeJob.class);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskScheduler batchScheduler;
+    private final Clock clock;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration pauseBetweenBatches;
+    private final Duration minAge;
+    private final LocalTime windowStart;
+    private final LocalTime windowEnd;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong purgedTotal = new AtomicLong();
+    private volatile Instant lastRunAt;
+    private volatile long lastRunPurged;
+    private volatile long lastRunMillis;
+
+    public UserPurgeJob(UserRepository userRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${app.purge.batch-size:500}") int batchSize,
+                        @Value("${app.purge.max-batches-per-run:20}") int maxBatchesPerRun,
+                        @Value("${app.purge.pause-between-batches:PT0.2S}") Duration pauseBetweenBatches,
+                        @Value("${app.purge.min-age:PT1H}") Duration minAge,
+                        @Value("${app.purge.window:}") String window) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchScheduler = new ThreadPoolTaskScheduler();
+        this.batchScheduler.setPoolSize(1);
+        this.batchScheduler.setThreadNamePrefix("user-purge-");
+        this.batchScheduler.initialize();
+        this.clock = Clock.systemDefaultZone();
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseBetweenBatches = pauseBetweenBatches;
+        this.minAge = minAge;
+        if (window.isBlank()) {
+            this.windowStart = null;
+            this.windowEnd = null;
+        } else {
+            String[] bounds = window.split("-");
+            this.windowStart = LocalTime.parse(bounds[0].trim());
+            this.windowEnd = LocalTime.parse(bounds[1].trim());
+        }
+    }
+
+    /**
+     * Starts a run unless one is still in progress; returns immediately.
+     */
+    @Scheduled(fixedDelayString = "${app.purge.interval:PT5M}", initialDelayString = "${app.purge.interval:PT5M}")
+    public void run() {
+        if (!inWindow(LocalTime.now(clock)) || !running.compareAndSet(false, true)) {
+            return;
+        }
+        PurgeRun run = new PurgeRun(clock.instant().minus(minAge), System.nanoTime());
+        batchScheduler.execute(() -> runBatch(run));
+    }
+
+    private void runBatch(PurgeRun run) {
+        int deleted;
+        try {
+            deleted = BulkheadContext.call(Bulkhead.BACKGROUND, () -> transactionTemplate.execute(status -> {
+                List<Long> ids = userRepository.findPurgeableIds(run.cutoff, batchSize);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                userRepository.purgeRoleLinks(ids);
+                return userRepository.purge(ids);
+            }));
+        } catch (RuntimeException e) {
+            logger.atWarn().setMessage("user.purge.failed").addKeyValue("error", e::toString).log();
+            finish(run);
+            return;
+        }
+        run.batches++;
+        run.purged += deleted;
+        purgedTotal.addAndGet(deleted);
+
+        if (deleted < batchSize || run.batches >= maxBatchesPerRun || !inWindow(LocalTime.now(clock))) {
+            finish(run);
+            return;
+        }
+        batchScheduler.schedule(() -> runBatch(run), Instant.now().plus(pauseBetweenBatches));
+    }
+
+    private void finish(PurgeRun run) {
+        lastRunAt = clock.instant();
+        lastRunPurged = run.purged;
+        lastRunMillis = (System.nanoTime() - run.startedNanos) / 1_000_000;
+        running.set(false);
+        if (run.purged > 0) {
+            PurgeStatus status = BulkheadContext.call(Bulkhead.BACKGROUND, this::status);
+            logger.atInfo().setMessage("user.purge")
+                    .addKeyValue("purged", run.purged)
+                    .addKeyValue("millis", lastRunMillis)
+                    .addKeyValue("pending", status.pending())
+                    .addKeyValue("lagSeconds", status.lagSeconds())
+                    .log();
+        }
+    }
+
+    /**
+     * Pending work and how far behind the purge is: the age of the oldest soft-deleted row
+     * minus the configured grace period.
+     */
+    public PurgeStatus status() {
+        long pending = userRepository.countPendingPurge();
+        long lagSeconds = userRepository.findOldestPendingPurge()
+                .map(oldest -> Math.max(0, Duration.between(oldest, clock.instant()).minus(minAge).toSeconds()))
+                .orElse(0L);
+        return new PurgeStatus(pending, lagSeconds, purgedTotal.get(), lastRunAt, lastRunPurged, lastRunMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        batchScheduler.shutdown();
+    }
+
+    private boolean inWindow(LocalTime now) {
+        if (windowStart == null) {
+            return true;
+        }
+        if (windowStart.isBefore(windowEnd)) {
+            return !now.isBefore(windowStart) && now.isBefore(windowEnd);
+        }
+        // window wraps past midnight, e.g. 23:00-04:00
+        return !now.isBefore(windowStart) || now.isBefore(windowEnd);
+    }
+
+    // touched only by the single batch thread
+    private static final class PurgeRun {
+        final Instant cutoff;
+        final long startedNanos;
+        int batches;
+        long purged;
+
+        PurgeRun(Instant cutoff, long startedNanos) {
+            this.cutoff = cutoff;
+            this.startedNanos = startedNanos;
+        }
+    }
+
+    public record PurgeStatus(long pending, long lagSeconds, long purgedTotal,
+                              Instant lastRunAt, long lastRunPurged, long lastRunMillis) {
+    }
+}
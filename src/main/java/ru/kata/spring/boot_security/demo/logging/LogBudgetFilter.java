@@ -0,0 +1,143 @@
+package ru.kata.spring.boot_security.demo.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps how much a noisy logger can write, configured in logback-spring.xml:
+ * <ul>
+ *     <li>{@code budgets}: {@code logger.prefix=N,...} allows at most N events per second</li>
+ *     <li>{@code sampling}: {@code logger.prefix=N,...} keeps one event in N</li>
+ * </ul>
+ * The longest matching prefix wins. ERROR is never dropped. Turbo filters run before the
+ * logging event is created, so a dropped event costs no allocation.
+ * <p>
+ * Level checks reach the filter without a message: {@code isDebugEnabled()} guards, and the
+ * SLF4J fluent {@code atInfo()}, whose {@code log()} never consults turbo filters. A check
+ * that passes is charged to the budget and prepays an event of the same logger and level,
+ * but only if that event is the very next call on the thread: any other call cancels the
+ * prepayment. A guarded event is therefore counted once; an unguarded one directly after a
+ * fluent event of the same logger and level is the one case that rides along for free.
+ */
+public class LogBudgetFilter extends TurboFilter {
+
+    private String budgets = "";
+    private String sampling = "";
+    private List<Rule> rules = List.of();
+    private final Map<String, Optional<Rule>> rulesByLogger = new ConcurrentHashMap<>();
+    private final ThreadLocal<Prepaid> prepaid = ThreadLocal.withInitial(Prepaid::new);
+
+    public void setBudgets(String budgets) {
+        this.budgets = budgets;
+    }
+
+    public void setSampling(String sampling) {
+        this.sampling = sampling;
+    }
+
+    @Override
+    public void start() {
+        Map<String, Rule> byPrefix = new ConcurrentHashMap<>();
+        parse(budgets).forEach((prefix, limit) -> byPrefix.computeIfAbsent(prefix, Rule::new).perSecond = limit);
+        parse(sampling).forEach((prefix, every) -> byPrefix.computeIfAbsent(prefix, Rule::new).sampleEvery = every);
+        List<Rule> sorted = new ArrayList<>(byPrefix.values());
+        sorted.sort(Comparator.comparingInt((Rule r) -> r.prefix.length()).reversed());
+        rules = List.copyOf(sorted);
+        rulesByLogger.clear();
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level,
+                              String format, Object[] params, Throwable t) {
+        Prepaid paid = prepaid.get();
+        boolean prepaidEvent = format != null && paid.logger == logger && paid.level == level;
+        paid.logger = null;
+        if (!isStarted() || level == null || level.isGreaterOrEqual(Level.ERROR)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Optional<Rule> rule = rulesByLogger.computeIfAbsent(logger.getName(), this::ruleFor);
+        if (rule.isEmpty() || prepaidEvent) {
+            return FilterReply.NEUTRAL;
+        }
+        boolean admitted = rule.get().admit();
+        if (format == null && admitted) {
+            paid.logger = logger;
+            paid.level = level;
+        }
+        return admitted ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private Optional<Rule> ruleFor(String loggerName) {
+        return rules.stream()
+                .filter(rule -> loggerName.equals(rule.prefix) || loggerName.startsWith(rule.prefix + "."))
+                .findFirst();
+    }
+
+    private Map<String, Long> parse(String spec) {
+        Map<String, Long> parsed = new ConcurrentHashMap<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                addWarn("Ignoring malformed log budget entry '" + entry + "'");
+                continue;
+            }
+            parsed.put(parts[0].trim(), Long.parseLong(parts[1].trim()));
+        }
+        return parsed;
+    }
+
+    // per thread, reused so that a passing level check allocates nothing
+    private static final class Prepaid {
+        Logger logger;
+        Level level;
+    }
+
+    private static final class Rule {
+        final String prefix;
+        long perSecond;
+        long sampleEvery;
+        // upper 32 bits: epoch second of the current window, lower 32 bits: events admitted in it
+        final AtomicLong window = new AtomicLong();
+        final AtomicLong seen = new AtomicLong();
+
+        Rule(String prefix) {
+            this.prefix = prefix;
+        }
+
+        boolean admit() {
+            if (sampleEvery > 1 && seen.getAndIncrement() % sampleEvery != 0) {
+                return false;
+            }
+            if (perSecond <= 0) {
+                return true;
+            }
+            long second = System.currentTimeMillis() / 1000;
+            while (true) {
+                long current = window.get();
+                long count = (current >>> 32) == second ? current & 0xFFFFFFFFL : 0;
+                if (count >= perSecond) {
+                    return false;
+                }
+                if (window.compareAndSet(current, (second << 32) | (count + 1))) {
+                    return true;
+                }
+            }
+        }
+    }
+}
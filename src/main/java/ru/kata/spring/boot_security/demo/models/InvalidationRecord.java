@@ -0,0 +1,45 @@
+package ru.kata.spring.boot_security.demo.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * One coalesced cache invalidation, appended by the node that made the change and
+ * polled by every other node. Rows are only kept for a short retention window.
+ */
+@Entity
+@Table(name = "cache_invalidations")
+public class InvalidationRecord {
+
+    public static final int MAX_PAYLOAD = 4000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "payload", nullable = false, length = MAX_PAYLOAD)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public InvalidationRecord() {}
+
+    public InvalidationRecord(String payload, Instant createdAt) {
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -18,6 +18,10 @@ public class Role {
     @Column(name = "name", nullable = false, unique = true)
     private String name;
 
+    // Stable position of this role in a RoleMaskAuthorities bitmask, assigned once by RoleBitRegistry
+    @Column(name = "bit_position", unique = true)
+    private Integer bitPosition;
+
     // Many-to-many relationship with User
     @ManyToMany(mappedBy = "roles")
     private Set<User> users = new HashSet<>();
@@ -46,6 +50,14 @@ public class Role {
         this.name = name;
     }
 
+    public Integer getBitPosition() {
+        return bitPosition;
+    }
+
+    public void setBitPosition(Integer bitPosition) {
+        this.bitPosition = bitPosition;
+    }
+
     public Set<User> getUsers() {
         return users;
     }
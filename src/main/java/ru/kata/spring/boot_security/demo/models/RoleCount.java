@@ -0,0 +1,9 @@
+package ru.kata.spring.boot_security.demo.models;
+
+import java.time.Instant;
+
+/**
+ * Current number of live users holding a role, read from role_user_counts.
+ */
+public record RoleCount(String role, long users, Instant updatedAt) {
+}
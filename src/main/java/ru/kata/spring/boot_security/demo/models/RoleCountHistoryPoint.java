@@ -0,0 +1,9 @@
+package ru.kata.spring.boot_security.demo.models;
+
+import java.time.Instant;
+
+/**
+ * A role's user count as recorded in role_user_count_history at {@code takenAt}.
+ */
+public record RoleCountHistoryPoint(String role, Instant takenAt, long users) {
+}
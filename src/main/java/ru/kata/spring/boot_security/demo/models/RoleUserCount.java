@@ -0,0 +1,44 @@
+package ru.kata.spring.boot_security.demo.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Number of active (not soft-deleted) users holding a role. Maintained incrementally in
+ * the same transaction as every user write and periodically reconciled with users_roles.
+ */
+@Entity
+@Table(name = "role_user_counts")
+public class RoleUserCount {
+
+    @Id
+    @Column(name = "role_id")
+    private Long roleId;
+
+    @Column(name = "user_count", nullable = false)
+    private long userCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public RoleUserCount() {}
+
+    public RoleUserCount(Long roleId, long userCount, Instant updatedAt) {
+        this.roleId = roleId;
+        this.userCount = userCount;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getRoleId() {
+        return roleId;
+    }
+
+    public long getUserCount() {
+        return userCount;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.kata.spring.boot_security.demo.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A point-in-time copy of a role's user count, taken during reconciliation, from which the
+ * dashboard draws growth over time.
+ */
+@Entity
+@Table(name = "role_user_count_history", indexes = @Index(name = "idx_role_count_history_taken_at", columnList = "taken_at"))
+public class RoleUserCountSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "role_id", nullable = false)
+    private Long roleId;
+
+    @Column(name = "taken_at", nullable = false)
+    private Instant takenAt;
+
+    @Column(name = "user_count", nullable = false)
+    private long userCount;
+
+    public RoleUserCountSnapshot() {}
+
+    public RoleUserCountSnapshot(Long roleId, Instant takenAt, long userCount) {
+        this.roleId = roleId;
+        this.takenAt = takenAt;
+        this.userCount = userCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getRoleId() {
+        return roleId;
+    }
+
+    public Instant getTakenAt() {
+        return takenAt;
+    }
+
+    public long getUserCount() {
+        return userCount;
+    }
+}
@@ -5,13 +5,18 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.SQLRestriction;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
 @Table(name = "users")
+@DynamicUpdate
+@SQLRestriction("deleted_at IS NULL")
 public class User {
 
     @Id
@@ -54,6 +59,15 @@ public class User {
     )
     private Set<Role> roles = new HashSet<>();
 
+    // Optimistic lock: the edit form posts back the version it was rendered with
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    // Set by deleteUser; every query skips such rows until UserPurgeJob removes them
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     public User() {}
 
     public User(String username, String password, String firstName, String lastName, int age, String email) {
@@ -131,6 +145,22 @@ public class User {
         this.roles = roles;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(Instant deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
     public void addRole(Role role) {
         roles.add(role);
         role.getUsers().add(this);
@@ -0,0 +1,27 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.kata.spring.boot_security.demo.models.InvalidationRecord;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface InvalidationRecordRepository extends JpaRepository<InvalidationRecord, Long> {
+    List<InvalidationRecord> findTop500ByIdGreaterThanOrderByIdAsc(Long id);
+
+    List<InvalidationRecord> findByIdIn(Collection<Long> ids);
+
+    @Query("select max(r.id) from InvalidationRecord r")
+    Optional<Long> findMaxId();
+
+    @Modifying
+    @Transactional
+    @Query("delete from InvalidationRecord r where r.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
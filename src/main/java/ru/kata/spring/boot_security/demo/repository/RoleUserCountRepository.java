@@ -0,0 +1,45 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.kata.spring.boot_security.demo.models.RoleCount;
+import ru.kata.spring.boot_security.demo.models.RoleUserCount;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface RoleUserCountRepository extends JpaRepository<RoleUserCount, Long> {
+
+    @Query("select new ru.kata.spring.boot_security.demo.models.RoleCount(r.name, c.userCount, c.updatedAt) " +
+            "from RoleUserCount c join Role r on r.id = c.roleId order by r.name")
+    List<RoleCount> findAllWithRoleNames();
+
+    @Modifying
+    @Query("update RoleUserCount c set c.userCount = c.userCount + :delta, c.updatedAt = :now where c.roleId in :roleIds")
+    int adjust(@Param("roleIds") Collection<Long> roleIds, @Param("delta") long delta, @Param("now") Instant now);
+
+    @Modifying
+    @Query(value = "update role_user_counts set user_count = user_count - 1, updated_at = :now " +
+            "where role_id in (select role_id from users_roles where user_id = :userId)", nativeQuery = true)
+    int decrementForUser(@Param("userId") Long userId, @Param("now") Instant now);
+
+    @Modifying
+    @Query(value = "insert into role_user_counts (role_id, user_count, updated_at) " +
+            "select r.id, 0, :now from roles r where not exists (select 1 from role_user_counts c where c.role_id = r.id)",
+            nativeQuery = true)
+    int insertMissing(@Param("now") Instant now);
+
+    @Query(value = "select count(*) from role_user_counts c where c.user_count <> " +
+            "(select count(*) from users_roles ur join users u on u.id = ur.user_id " +
+            "where ur.role_id = c.role_id and u.deleted_at is null)", nativeQuery = true)
+    long countDrifted();
+
+    @Modifying
+    @Query(value = "update role_user_counts c set updated_at = :now, user_count = " +
+            "(select count(*) from users_roles ur join users u on u.id = ur.user_id " +
+            "where ur.role_id = c.role_id and u.deleted_at is null)", nativeQuery = true)
+    int recount(@Param("now") Instant now);
+}
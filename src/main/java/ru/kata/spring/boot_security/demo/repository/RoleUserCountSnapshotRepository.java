@@ -0,0 +1,27 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.kata.spring.boot_security.demo.models.RoleCountHistoryPoint;
+import ru.kata.spring.boot_security.demo.models.RoleUserCountSnapshot;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface RoleUserCountSnapshotRepository extends JpaRepository<RoleUserCountSnapshot, Long> {
+
+    @Query("select new ru.kata.spring.boot_security.demo.models.RoleCountHistoryPoint(r.name, s.takenAt, s.userCount) " +
+            "from RoleUserCountSnapshot s join Role r on r.id = s.roleId where s.takenAt > :since order by s.takenAt, r.name")
+    List<RoleCountHistoryPoint> findHistorySince(@Param("since") Instant since);
+
+    @Query("select max(s.takenAt) from RoleUserCountSnapshot s")
+    Optional<Instant> findLatestTakenAt();
+
+    @Modifying
+    @Query(value = "insert into role_user_count_history (role_id, taken_at, user_count) " +
+            "select role_id, :now, user_count from role_user_counts", nativeQuery = true)
+    int snapshot(@Param("now") Instant now);
+}
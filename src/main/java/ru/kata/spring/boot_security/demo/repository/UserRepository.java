@@ -1,15 +1,61 @@
 package ru.kata.spring.boot_security.demo.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.kata.spring.boot_security.demo.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
+/**
+ * Derived finders never see soft-deleted users (see {@code @SQLRestriction} on User).
+ * The native queries below are the only way to reach rows that are pending purge.
+ */
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    // roles are EAGER: without the graph each user costs a second select for its roles
+    @Override
+    @EntityGraph(attributePaths = "roles")
+    List<User> findAll();
+
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByEmail(String email);
+
+    @Query("select distinct u from User u left join fetch u.roles where u.email in :emails")
+    List<User> findAllWithRolesByEmailIn(@Param("emails") Collection<String> emails);
+
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    @Modifying
+    @Query("update User u set u.deletedAt = :deletedAt, u.version = u.version + 1 where u.id = :id and u.deletedAt is null")
+    int softDelete(@Param("id") Long id, @Param("deletedAt") Instant deletedAt);
+
+    @Query(value = "select count(*) from users where username = :username or email = :email", nativeQuery = true)
+    long countIncludingDeleted(@Param("username") String username, @Param("email") String email);
+
+    @Query(value = "select id from users where deleted_at < :cutoff order by id limit :limit", nativeQuery = true)
+    List<Long> findPurgeableIds(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Query(value = "select count(*) from users where deleted_at is not null", nativeQuery = true)
+    long countPendingPurge();
+
+    @Query(value = "select min(deleted_at) from users where deleted_at is not null", nativeQuery = true)
+    Optional<Instant> findOldestPendingPurge();
+
+    @Modifying
+    @Query(value = "delete from users_roles where user_id in (:ids)", nativeQuery = true)
+    int purgeRoleLinks(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "delete from users where id in (:ids) and deleted_at is not null", nativeQuery = true)
+    int purge(@Param("ids") Collection<Long> ids);
 }
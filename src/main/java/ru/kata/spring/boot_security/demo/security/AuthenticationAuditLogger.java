@@ -0,0 +1,37 @@
+package ru.kata.spring.boot_security.demo.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * One structured line per login attempt. Successes and failures use separate loggers so
+ * {@code app.logging.sampling} and {@code app.logging.budgets} can thin out a login storm
+ * or a credential-stuffing run independently.
+ */
+@Component
+public class AuthenticationAuditLogger {
+
+    private static final Logger successLogger = LoggerFactory.getLogger(AuthenticationAuditLogger.class.getName() + ".success");
+    private static final Logger failureLogger = LoggerFactory.getLogger(AuthenticationAuditLogger.class.getName() + ".failure");
+
+    @EventListener
+    public void onSuccess(AuthenticationSuccessEvent event) {
+        successLogger.atInfo()
+                .setMessage("login.success")
+                .addKeyValue("user", event.getAuthentication().getName())
+                .log();
+    }
+
+    @EventListener
+    public void onFailure(AbstractAuthenticationFailureEvent event) {
+        failureLogger.atWarn()
+                .setMessage("login.failure")
+                .addKeyValue("user", event.getAuthentication().getName())
+                .addKeyValue("reason", event.getException().getClass().getSimpleName())
+                .log();
+    }
+}
@@ -0,0 +1,195 @@
+package ru.kata.spring.boot_security.demo.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import ru.kata.spring.boot_security.demo.cache.PrincipalCache;
+import ru.kata.spring.boot_security.demo.datasource.Bulkhead;
+import ru.kata.spring.boot_security.demo.datasource.BulkheadContext;
+import ru.kata.spring.boot_security.demo.service.UserService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Loads login principals that are not in PrincipalCache, coalescing concurrent lookups.
+ * <p>
+ * A lookup for an email that is already being loaded waits for that load. Otherwise the
+ * email joins the open batch; the thread that opened it waits up to
+ * {@code app.security.login-batch.max-wait}, or until {@code max-size} emails have joined,
+ * then loads them all with one {@code email IN (...)} query on the login bulkhead and
+ * hands every waiting thread its result. A lookup with no other load in flight does not
+ * wait at all, and no thread waits for a result longer than {@code timeout}.
+ */
+@Component
+public class BatchingPrincipalLoader {
+
+    private final UserService userService;
+    private final PrincipalCache principalCache;
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final long timeoutNanos;
+
+    private final Map<String, CompletableFuture<Optional<UserDetails>>> inFlight = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private Batch open;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public BatchingPrincipalLoader(UserService userService,
+                                   PrincipalCache principalCache,
+                                   @Value("${app.security.login-batch.max-size:64}") int maxSize,
+                                   @Value("${app.security.login-batch.max-wait:500us}") Duration maxWait,
+                                   @Value("${app.security.login-batch.timeout:2s}") Duration timeout) {
+        this.userService = userService;
+        this.principalCache = principalCache;
+        this.maxSize = Math.max(1, maxSize);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Returns a principal of the caller's own: the authentication manager erases the
+     * password of the one it was given, and several logins may share one load.
+     */
+    public Optional<UserDetails> load(String email) {
+        lookups.increment();
+        CompletableFuture<Optional<UserDetails>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<UserDetails>> existing = inFlight.putIfAbsent(email, future);
+        if (existing != null) {
+            deduplicated.increment();
+            return copyOf(existing);
+        }
+
+        Batch batch;
+        boolean leader;
+        synchronized (lock) {
+            if (open == null) {
+                open = new Batch(Thread.currentThread());
+            }
+            batch = open;
+            batch.futures.put(email, future);
+            leader = batch.leader == Thread.currentThread();
+            if (batch.futures.size() >= maxSize) {
+                open = null;
+                LockSupport.unpark(batch.leader);
+            }
+        }
+        if (leader) {
+            execute(batch);
+        }
+        return copyOf(future);
+    }
+
+    public Stats stats() {
+        long batchCount = batches.sum();
+        long loaded = lookups.sum() - deduplicated.sum();
+        return new Stats(lookups.sum(), deduplicated.sum(), batchCount,
+                batchCount == 0 ? 0.0 : (double) loaded / batchCount);
+    }
+
+    private void execute(Batch batch) {
+        boolean interrupted = false;
+        // with nothing else in flight there is no one to wait for
+        if (inFlight.size() > 1) {
+            long deadline = System.nanoTime() + maxWaitNanos;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0 && !isClosed(batch)) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                    break;
+                }
+            }
+        }
+        Map<String, CompletableFuture<Optional<UserDetails>>> futures;
+        synchronized (lock) {
+            if (open == batch) {
+                open = null;
+            }
+            futures = new HashMap<>(batch.futures);
+        }
+        batches.increment();
+
+        Map<String, UserDetails> byEmail = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Throwable failure = null;
+        try {
+            long stamp = principalCache.stamp();
+            List<ru.kata.spring.boot_security.demo.models.User> users = BulkheadContext.call(Bulkhead.LOGIN,
+                    () -> userService.findAllByEmailIn(new ArrayList<>(futures.keySet())));
+            // email columns usually compare case-insensitively, so "Admin@" must find "admin@"
+            for (ru.kata.spring.boot_security.demo.models.User user : users) {
+                UserDetails details = new User(user.getEmail(), user.getPassword(),
+                        userService.mapRolesToAuthorities(user.getRoles()));
+                principalCache.put(stamp, user.getId(), details);
+                byEmail.put(user.getEmail(), details);
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            for (Map.Entry<String, CompletableFuture<Optional<UserDetails>>> entry : futures.entrySet()) {
+                inFlight.remove(entry.getKey(), entry.getValue());
+                if (failure == null) {
+                    entry.getValue().complete(Optional.ofNullable(byEmail.get(entry.getKey())));
+                } else {
+                    entry.getValue().completeExceptionally(failure);
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean isClosed(Batch batch) {
+        synchronized (lock) {
+            return open != batch;
+        }
+    }
+
+    private Optional<UserDetails> copyOf(CompletableFuture<Optional<UserDetails>> future) {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS).map(details -> User.withUserDetails(details).build());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Principal lookup did not finish within " + Duration.ofNanos(timeoutNanos), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a principal lookup", e);
+        }
+    }
+
+    private static final class Batch {
+        final Thread leader;
+        final Map<String, CompletableFuture<Optional<UserDetails>>> futures = new HashMap<>();
+
+        Batch(Thread leader) {
+            this.leader = leader;
+        }
+    }
+
+    public record Stats(long lookups, long deduplicated, long batches, double averageBatchSize) {
+    }
+}
@@ -0,0 +1,19 @@
+package ru.kata.spring.boot_security.demo.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Method-level replacement for {@code @PreAuthorize("hasAnyRole(...)")} that is checked
+ * as a bit test by RoleMaskAuthorizationManager instead of evaluating a SpEL expression.
+ * Takes full role names, e.g. {@code "ROLE_ADMIN"}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RequireRoles {
+    String[] value();
+}
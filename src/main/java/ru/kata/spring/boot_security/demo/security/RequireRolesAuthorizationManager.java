@@ -0,0 +1,45 @@
+package ru.kata.spring.boot_security.demo.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Resolves {@link RequireRoles} once per method (method annotation first, then the class)
+ * and delegates to a cached RoleMaskAuthorizationManager.
+ */
+public final class RequireRolesAuthorizationManager implements AuthorizationManager<MethodInvocation> {
+
+    private final ObjectProvider<RoleBitRegistry> registry;
+    private final Map<Method, AuthorizationManager<MethodInvocation>> managers = new ConcurrentHashMap<>();
+
+    public RequireRolesAuthorizationManager(ObjectProvider<RoleBitRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        return managers.computeIfAbsent(invocation.getMethod(), method -> managerFor(method, invocation.getThis()))
+                .check(authentication, invocation);
+    }
+
+    private AuthorizationManager<MethodInvocation> managerFor(Method method, Object target) {
+        RequireRoles annotation = AnnotatedElementUtils.findMergedAnnotation(method, RequireRoles.class);
+        if (annotation == null && target != null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(AopUtils.getTargetClass(target), RequireRoles.class);
+        }
+        if (annotation == null) {
+            return (authentication, invocation) -> new AuthorizationDecision(true);
+        }
+        return RoleMaskAuthorizationManager.hasAnyRole(registry.getObject(), annotation.value());
+    }
+}
@@ -0,0 +1,54 @@
+package ru.kata.spring.boot_security.demo.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serializable;
+
+/**
+ * A role as a granted authority that also knows its bit. There is one shared instance
+ * per role, so a login allocates no authority objects, and access checks can OR the bits
+ * together instead of comparing names.
+ */
+public final class RoleAuthority implements GrantedAuthority, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String authority;
+    private final int bit;
+
+    RoleAuthority(String authority, int bit) {
+        this.authority = authority;
+        this.bit = bit;
+    }
+
+    @Override
+    public String getAuthority() {
+        return authority;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    public long mask() {
+        return 1L << bit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RoleAuthority that = (RoleAuthority) o;
+        return bit == that.bit && authority.equals(that.authority);
+    }
+
+    @Override
+    public int hashCode() {
+        return authority.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return authority;
+    }
+}
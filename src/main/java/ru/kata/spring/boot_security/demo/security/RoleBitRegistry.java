@@ -0,0 +1,169 @@
+package ru.kata.spring.boot_security.demo.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.kata.spring.boot_security.demo.cache.InvalidationEvent;
+import ru.kata.spring.boot_security.demo.cache.InvalidationListener;
+import ru.kata.spring.boot_security.demo.models.Role;
+import ru.kata.spring.boot_security.demo.repository.RoleRepository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maps role names to bit positions stored in {@code roles.bit_position}. A role gets the
+ * lowest free position when it is created and keeps it for good, so masks in live sessions
+ * stay valid across restarts and on every node.
+ * <p>
+ * Lookups never touch the database. The mapping is reloaded only when the role catalogue
+ * changes on any node (see InvalidationBus, and RoleCatalogueWatcher should that message
+ * be lost); until then a name the mapping lacks is remembered as unknown and contributes
+ * no bit.
+ */
+@Component
+public class RoleBitRegistry implements InvalidationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleBitRegistry.class);
+
+    private final RoleRepository roleRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), new RoleAuthority[Long.SIZE], ConcurrentHashMap.newKeySet());
+
+    public RoleBitRegistry(RoleRepository roleRepository, PlatformTransactionManager transactionManager) {
+        this.roleRepository = roleRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // refresh() runs from InvalidationBus in afterCompletion, where the finished write
+        // transaction is still bound to the thread and must not be joined
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    public RoleMaskAuthorities authoritiesOf(Collection<Role> roles) {
+        Snapshot current = snapshot;
+        long mask = 0L;
+        for (Role role : roles) {
+            mask |= current.bitOf(role.getName());
+        }
+        return new RoleMaskAuthorities(mask, current.byBit);
+    }
+
+    /**
+     * Bits for the given role names; names that are not roles contribute nothing.
+     */
+    public long maskOf(String... roleNames) {
+        return snapshot.mask(roleNames);
+    }
+
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Gives a new role the lowest free bit. Runs in the caller's transaction, so two nodes
+     * creating roles at once cannot both commit the same position: the unique constraint on
+     * {@code bit_position} rejects the second one.
+     */
+    public void assignBit(Role role) {
+        if (role.getBitPosition() == null) {
+            role.setBitPosition(lowestFreeBit(usedBits(roleRepository.findAll()), role));
+        }
+    }
+
+    /**
+     * Assigns bits to roles that were stored before positions existed; called once at startup.
+     */
+    public void assignMissingBits() {
+        writeTransaction.executeWithoutResult(status -> {
+            List<Role> all = roleRepository.findAll();
+            long used = usedBits(all);
+            List<Role> unassigned = all.stream()
+                    .filter(role -> role.getBitPosition() == null)
+                    .sorted(Comparator.comparing(Role::getId))
+                    .toList();
+            for (Role role : unassigned) {
+                int bit = lowestFreeBit(used, role);
+                role.setBitPosition(bit);
+                used |= 1L << bit;
+            }
+            roleRepository.saveAll(unassigned);
+        });
+        refresh();
+    }
+
+    public synchronized void refresh() {
+        List<Role> roles = readOnlyTransaction.execute(status -> roleRepository.findAll());
+        RoleAuthority[] byBit = new RoleAuthority[Long.SIZE];
+        for (Role role : roles) {
+            if (role.getBitPosition() != null) {
+                byBit[role.getBitPosition()] = new RoleAuthority(role.getName(), role.getBitPosition());
+            }
+        }
+        Map<String, RoleAuthority> byName = Arrays.stream(byBit)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableMap(RoleAuthority::getAuthority, a -> a));
+        snapshot = new Snapshot(byName, byBit, ConcurrentHashMap.newKeySet());
+    }
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.all() || event.roleCatalogueVersion() != 0) {
+            refresh();
+        }
+    }
+
+    private static long usedBits(List<Role> roles) {
+        long used = 0L;
+        for (Role role : roles) {
+            if (role.getBitPosition() != null) {
+                used |= 1L << role.getBitPosition();
+            }
+        }
+        return used;
+    }
+
+    private static int lowestFreeBit(long used, Role role) {
+        if (used == -1L) {
+            throw new IllegalStateException("No free role bit for " + role.getName()
+                    + ", at most " + Long.SIZE + " roles are supported");
+        }
+        return Long.numberOfTrailingZeros(~used);
+    }
+
+    /**
+     * {@code unknown} is the negative cache for this mapping; it is dropped with the snapshot.
+     */
+    record Snapshot(Map<String, RoleAuthority> byName, RoleAuthority[] byBit, Set<String> unknown) {
+
+        long bitOf(String name) {
+            RoleAuthority authority = byName.get(name);
+            if (authority != null) {
+                return authority.mask();
+            }
+            if (unknown.add(name)) {
+                logger.atWarn().setMessage("role.unknown").addKeyValue("role", name).log();
+            }
+            return 0L;
+        }
+
+        long mask(String... roleNames) {
+            long mask = 0L;
+            for (String name : roleNames) {
+                mask |= bitOf(name);
+            }
+            return mask;
+        }
+    }
+}
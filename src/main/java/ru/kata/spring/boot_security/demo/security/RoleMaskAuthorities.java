@@ -0,0 +1,76 @@
+package ru.kata.spring.boot_security.demo.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable set of role authorities stored as a single {@code long}. Spring Security copies
+ * authorities into its own collections, but the {@link RoleAuthority} elements survive the
+ * copy, so {@link #maskOf(Collection)} can rebuild the mask from any authority collection.
+ */
+public final class RoleMaskAuthorities extends AbstractSet<GrantedAuthority> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long mask;
+    private final RoleAuthority[] byBit;
+
+    RoleMaskAuthorities(long mask, RoleAuthority[] byBit) {
+        this.mask = mask;
+        this.byBit = byBit;
+    }
+
+    public long getMask() {
+        return mask;
+    }
+
+    public static long maskOf(Collection<? extends GrantedAuthority> authorities) {
+        if (authorities instanceof RoleMaskAuthorities roleMask) {
+            return roleMask.mask;
+        }
+        long mask = 0L;
+        for (GrantedAuthority authority : authorities) {
+            if (authority instanceof RoleAuthority role) {
+                mask |= role.mask();
+            }
+        }
+        return mask;
+    }
+
+    @Override
+    public int size() {
+        return Long.bitCount(mask);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof RoleAuthority role && (mask & role.mask()) != 0 && byBit[role.getBit()].equals(role);
+    }
+
+    @Override
+    public Iterator<GrantedAuthority> iterator() {
+        return new Iterator<>() {
+            private long remaining = mask;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public GrantedAuthority next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                int bit = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                return byBit[bit];
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package ru.kata.spring.boot_security.demo.security;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+
+import java.util.function.Supplier;
+
+/**
+ * Grants access when the caller holds at least one of the given roles, decided with a
+ * single AND against the caller's role mask. The required mask is resolved lazily and
+ * re-resolved only after the registry reloads, since roles may be created after startup.
+ */
+public final class RoleMaskAuthorizationManager<T> implements AuthorizationManager<T> {
+
+    private final RoleBitRegistry registry;
+    private final String[] roleNames;
+    private volatile Resolved resolved;
+
+    private RoleMaskAuthorizationManager(RoleBitRegistry registry, String... roleNames) {
+        this.registry = registry;
+        this.roleNames = roleNames;
+    }
+
+    public static <T> RoleMaskAuthorizationManager<T> hasAnyRole(RoleBitRegistry registry, String... roleNames) {
+        return new RoleMaskAuthorizationManager<>(registry, roleNames);
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, T object) {
+        Authentication auth = authentication.get();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return new AuthorizationDecision(false);
+        }
+        return new AuthorizationDecision((RoleMaskAuthorities.maskOf(auth.getAuthorities()) & requiredMask()) != 0);
+    }
+
+    private long requiredMask() {
+        RoleBitRegistry.Snapshot current = registry.snapshot();
+        Resolved cached = resolved;
+        if (cached == null || cached.snapshot != current) {
+            long mask = registry.maskOf(roleNames);
+            cached = new Resolved(registry.snapshot(), mask);
+            resolved = cached;
+        }
+        return cached.mask;
+    }
+
+    private record Resolved(RoleBitRegistry.Snapshot snapshot, long mask) {
+    }
+}
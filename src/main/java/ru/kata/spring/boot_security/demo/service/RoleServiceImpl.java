@@ -2,8 +2,11 @@ package ru.kata.spring.boot_security.demo.service;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.kata.spring.boot_security.demo.cache.InvalidationBus;
+import ru.kata.spring.boot_security.demo.cache.RoleCatalogueCache;
 import ru.kata.spring.boot_security.demo.models.Role;
 import ru.kata.spring.boot_security.demo.repository.RoleRepository;
+import ru.kata.spring.boot_security.demo.security.RoleBitRegistry;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,21 +17,36 @@ import java.util.stream.Collectors;
 public class RoleServiceImpl implements RoleService {
 
     private final RoleRepository roleRepository;
+    private final RoleCatalogueCache roleCatalogueCache;
+    private final InvalidationBus invalidationBus;
+    private final RoleStatisticsService roleStatisticsService;
+    private final RoleBitRegistry roleBitRegistry;
 
-    public RoleServiceImpl(RoleRepository roleRepository) {
+    public RoleServiceImpl(RoleRepository roleRepository,
+                           RoleCatalogueCache roleCatalogueCache,
+                           InvalidationBus invalidationBus,
+                           RoleStatisticsService roleStatisticsService,
+                           RoleBitRegistry roleBitRegistry) {
         this.roleRepository = roleRepository;
+        this.roleCatalogueCache = roleCatalogueCache;
+        this.invalidationBus = invalidationBus;
+        this.roleStatisticsService = roleStatisticsService;
+        this.roleBitRegistry = roleBitRegistry;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Role> findAll() {
-        return roleRepository.findAll();
+        return roleCatalogueCache.get(roleRepository::findAll);
     }
 
     @Override
     @Transactional
     public void save(Role role) {
+        roleBitRegistry.assignBit(role);
         roleRepository.save(role);
+        roleStatisticsService.roleAdded();
+        invalidationBus.roleCatalogueChanged();
     }
 
     @Override
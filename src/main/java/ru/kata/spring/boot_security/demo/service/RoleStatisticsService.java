@@ -0,0 +1,28 @@
+package ru.kata.spring.boot_security.demo.service;
+
+import ru.kata.spring.boot_security.demo.models.Role;
+import ru.kata.spring.boot_security.demo.models.RoleCount;
+import ru.kata.spring.boot_security.demo.models.RoleCountHistoryPoint;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+public interface RoleStatisticsService {
+    void userAdded(Collection<Role> roles);
+
+    void userRolesChanged(Collection<Role> added, Collection<Role> removed);
+
+    void userDeleted(Long userId);
+
+    void roleAdded();
+
+    long reconcile();
+
+    boolean snapshotIfOlderThan(Duration interval);
+
+    Statistics getStatistics(Duration history);
+
+    record Statistics(List<RoleCount> roles, List<RoleCountHistoryPoint> history) {
+    }
+}
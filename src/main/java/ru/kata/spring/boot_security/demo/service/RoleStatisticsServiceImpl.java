@@ -0,0 +1,103 @@
+package ru.kata.spring.boot_security.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.kata.spring.boot_security.demo.models.Role;
+import ru.kata.spring.boot_security.demo.repository.RoleUserCountRepository;
+import ru.kata.spring.boot_security.demo.repository.RoleUserCountSnapshotRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps role_user_counts in step with users_roles. The adjust methods must be called from
+ * the transaction that changes the user, so a counter never disagrees with committed data;
+ * reconcile() recounts from users_roles to repair drift from writes that bypass the service
+ * (bulk imports, manual SQL).
+ */
+@Service
+@Transactional
+public class RoleStatisticsServiceImpl implements RoleStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleStatisticsServiceImpl.class);
+
+    private final RoleUserCountRepository countRepository;
+    private final RoleUserCountSnapshotRepository snapshotRepository;
+
+    public RoleStatisticsServiceImpl(RoleUserCountRepository countRepository,
+                                     RoleUserCountSnapshotRepository snapshotRepository) {
+        this.countRepository = countRepository;
+        this.snapshotRepository = snapshotRepository;
+    }
+
+    @Override
+    public void userAdded(Collection<Role> roles) {
+        adjust(roles, 1);
+    }
+
+    @Override
+    public void userRolesChanged(Collection<Role> added, Collection<Role> removed) {
+        adjust(added, 1);
+        adjust(removed, -1);
+    }
+
+    /**
+     * Decrements every role the user still links to; called when the user is soft-deleted,
+     * while the users_roles rows are still there.
+     */
+    @Override
+    public void userDeleted(Long userId) {
+        countRepository.decrementForUser(userId, Instant.now());
+    }
+
+    @Override
+    public void roleAdded() {
+        countRepository.insertMissing(Instant.now());
+    }
+
+    /**
+     * @return how many role counters were wrong and have been corrected
+     */
+    @Override
+    public long reconcile() {
+        Instant now = Instant.now();
+        countRepository.insertMissing(now);
+        long drifted = countRepository.countDrifted();
+        if (drifted > 0) {
+            countRepository.recount(now);
+            logger.atWarn().setMessage("role.counts.reconciled").addKeyValue("drifted", drifted).log();
+        }
+        return drifted;
+    }
+
+    @Override
+    public boolean snapshotIfOlderThan(Duration interval) {
+        Instant now = Instant.now();
+        boolean due = snapshotRepository.findLatestTakenAt()
+                .map(latest -> !latest.plus(interval).isAfter(now))
+                .orElse(true);
+        if (due) {
+            snapshotRepository.snapshot(now);
+        }
+        return due;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Statistics getStatistics(Duration history) {
+        return new Statistics(countRepository.findAllWithRoleNames(),
+                snapshotRepository.findHistorySince(Instant.now().minus(history)));
+    }
+
+    private void adjust(Collection<Role> roles, long delta) {
+        if (roles.isEmpty()) {
+            return;
+        }
+        List<Long> roleIds = roles.stream().map(Role::getId).toList();
+        countRepository.adjust(roleIds, delta, Instant.now());
+    }
+}
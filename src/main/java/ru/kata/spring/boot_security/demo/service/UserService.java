@@ -30,6 +30,8 @@ public interface UserService {
     @Transactional(readOnly = true)
     Optional<User> findByEmail(String email);
 
+    List<User> findAllByEmailIn(Collection<String> emails);
+
     Collection<? extends GrantedAuthority> mapRolesToAuthorities(Collection<Role> roles);
 
 }
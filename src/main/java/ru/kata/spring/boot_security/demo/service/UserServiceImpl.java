@@ -3,10 +3,12 @@ package ru.kata.spring.boot_security.demo.service;
 import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.kata.spring.boot_security.demo.cache.InvalidationBus;
+import ru.kata.spring.boot_security.demo.security.RoleBitRegistry;
 import ru.kata.spring.boot_security.demo.models.Role;
 import ru.kata.spring.boot_security.demo.models.User;
 import ru.kata.spring.boot_security.demo.repository.RoleRepository;
@@ -14,8 +16,8 @@ import ru.kata.spring.boot_security.demo.repository.UserRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -24,14 +26,23 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final RoleRepository roleRepository;
+    private final InvalidationBus invalidationBus;
+    private final RoleBitRegistry roleBitRegistry;
+    private final RoleStatisticsService roleStatisticsService;
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
     public UserServiceImpl(UserRepository userRepository,
                            PasswordEncoder passwordEncoder,
-                           RoleRepository roleRepository) {
+                           RoleRepository roleRepository,
+                           InvalidationBus invalidationBus,
+                           RoleBitRegistry roleBitRegistry,
+                           RoleStatisticsService roleStatisticsService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.roleRepository = roleRepository;
+        this.invalidationBus = invalidationBus;
+        this.roleBitRegistry = roleBitRegistry;
+        this.roleStatisticsService = roleStatisticsService;
     }
 
     @Override
@@ -75,35 +86,71 @@ public class UserServiceImpl implements UserService {
             throw new IllegalArgumentException("User must have at least one role");
         }
 
-        // Проверка на уникальность username и email
-        if (userRepository.findByUsername(user.getUsername()).isPresent()) {
-            throw new IllegalArgumentException("Username already exists");
-        }
-        if (userRepository.findByEmail(user.getEmail()).isPresent()) {
-            throw new IllegalArgumentException("Email already exists");
+        // Проверка на уникальность username и email, включая удалённых, но ещё не очищенных
+        if (userRepository.countIncludingDeleted(user.getUsername(), user.getEmail()) > 0) {
+            throw new IllegalArgumentException("Username or email already exists");
         }
 
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         userRepository.save(user);
+        roleStatisticsService.userAdded(user.getRoles());
+        invalidationBus.userChanged(user.getId(), user.getEmail());
 
-        logger.info("User saved successfully: {}", user);
+        logger.atInfo().setMessage("user.saved")
+                .addKeyValue("userId", user::getId)
+                .addKeyValue("username", user::getUsername)
+                .log();
     }
 
+    /**
+     * Marks the user deleted with a single UPDATE; the row and its users_roles links are
+     * removed later, in small batches, by UserPurgeJob.
+     */
     @Override
     public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+        if (userRepository.softDelete(id, Instant.now()) > 0) {
+            roleStatisticsService.userDeleted(id);
+            invalidationBus.userChanged(id);
+        }
     }
 
+    /**
+     * Applies the form onto the managed entity instead of merging a detached copy: only
+     * changed columns are written (User is {@code @DynamicUpdate}) and the roles set is
+     * edited in place, so Hibernate inserts/deletes just the changed users_roles rows.
+     * A plain field edit is one SELECT and one versioned UPDATE.
+     *
+     * @throws ObjectOptimisticLockingFailureException if the user was changed since the
+     *                                                 form was rendered
+     */
     @Override
     public void updateUser(User user) {
-        User existingUser = userRepository.findById(user.getId()).orElseThrow();
-
-        if (user.getPassword() == null || user.getPassword().isEmpty()) {
-            user.setPassword(existingUser.getPassword());
-        } else if (!user.getPassword().equals(existingUser.getPassword())) {
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
+        User existingUser = userRepository.findById(user.getId())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        if (existingUser.getVersion() != user.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(User.class, user.getId());
         }
-        userRepository.save(user);
+        String previousEmail = existingUser.getEmail();
+
+        existingUser.setUsername(user.getUsername());
+        existingUser.setFirstName(user.getFirstName());
+        existingUser.setLastName(user.getLastName());
+        existingUser.setAge(user.getAge());
+        existingUser.setEmail(user.getEmail());
+        if (user.getPassword() != null && !user.getPassword().isEmpty()
+                && !user.getPassword().equals(existingUser.getPassword())) {
+            existingUser.setPassword(passwordEncoder.encode(user.getPassword()));
+        }
+        if (user.getRoles() != null && !user.getRoles().isEmpty()) {
+            Set<Role> added = new HashSet<>(user.getRoles());
+            added.removeAll(existingUser.getRoles());
+            Set<Role> removed = new HashSet<>(existingUser.getRoles());
+            removed.removeAll(user.getRoles());
+            existingUser.getRoles().removeAll(removed);
+            existingUser.getRoles().addAll(added);
+            roleStatisticsService.userRolesChanged(added, removed);
+        }
+        invalidationBus.userChanged(existingUser.getId(), previousEmail, existingUser.getEmail());
     }
 
     @Override
@@ -125,10 +172,17 @@ public class UserServiceImpl implements UserService {
                 });
     }
 
+    /**
+     * Users and their roles in one query, for batched login lookups.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<User> findAllByEmailIn(Collection<String> emails) {
+        return userRepository.findAllWithRolesByEmailIn(emails);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> mapRolesToAuthorities(Collection<Role> roles) {
-        return roles.stream()
-                .map(role -> new SimpleGrantedAuthority(role.getName()))
-                .collect(Collectors.toList());
+        return roleBitRegistry.authoritiesOf(roles);
     }
 }
@@ -1,9 +1,9 @@
 package ru.kata.spring.boot_security.demo;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
+import ru.kata.spring.boot_security.demo.support.IntegrationTest;
 
-@SpringBootTest
+@IntegrationTest
 class SpringBootSecurityDemoApplicationTests {
 
 	@Test
@@ -0,0 +1,76 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.kata.spring.boot_security.demo.repository.InvalidationRecordRepository;
+import ru.kata.spring.boot_security.demo.support.IntegrationTest;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives a private transport instance by hand; rows are written with explicit ids far above
+ * the live sequence, so the application's own transport and parallel tests are unaffected.
+ */
+@IntegrationTest
+class DbPollingInvalidationTransportTest {
+
+    @Autowired
+    private InvalidationRecordRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rowCommittedBelowHighWaterMarkIsStillDelivered() {
+        DbPollingInvalidationTransport transport = new DbPollingInvalidationTransport(repository, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        List<String> received = new ArrayList<>();
+        transport.subscribe(event -> received.addAll(event.emails()));
+        long base = repository.findMaxId().orElse(0L) + 1_000_000;
+        insert(base, "start@example.com");
+        transport.poll();
+
+        // the node holding base + 1 commits after the nodes holding base + 2 and base + 3
+        insert(base + 2, "second@example.com");
+        insert(base + 3, "third@example.com");
+        transport.poll();
+        assertEquals(List.of("second@example.com", "third@example.com"), received);
+        assertEquals(1, transport.pendingGaps());
+
+        insert(base + 1, "late@example.com");
+        transport.poll();
+        assertEquals(List.of("second@example.com", "third@example.com", "late@example.com"), received);
+        assertEquals(0, transport.pendingGaps());
+
+        transport.poll();
+        assertEquals(3, received.size());
+    }
+
+    @Test
+    void gapIsDroppedAfterTimeout() {
+        DbPollingInvalidationTransport transport = new DbPollingInvalidationTransport(repository, Duration.ofMinutes(10), Duration.ZERO);
+        long base = repository.findMaxId().orElse(0L) + 2_000_000;
+        insert(base, "start@example.com");
+        transport.poll();
+
+        insert(base + 2, "after-rollback@example.com");
+        transport.poll();
+        assertEquals(1, transport.pendingGaps());
+
+        transport.poll();
+        assertEquals(0, transport.pendingGaps());
+    }
+
+    private void insert(long id, String email) {
+        InvalidationEvent event = new InvalidationEvent("other-node", System.currentTimeMillis(), Set.of(), Set.of(email), 0L, false);
+        jdbcTemplate.update("INSERT INTO cache_invalidations (id, payload, created_at) VALUES (?, ?, ?)",
+                id, event.encode(), Timestamp.from(Instant.now()));
+    }
+}
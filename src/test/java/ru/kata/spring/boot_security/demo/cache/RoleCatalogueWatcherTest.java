@@ -0,0 +1,55 @@
+package ru.kata.spring.boot_security.demo.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.kata.spring.boot_security.demo.models.Role;
+import ru.kata.spring.boot_security.demo.security.RoleBitRegistry;
+import ru.kata.spring.boot_security.demo.service.RoleService;
+import ru.kata.spring.boot_security.demo.support.IntegrationTest;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@IntegrationTest
+class RoleCatalogueWatcherTest {
+
+    @Autowired
+    private RoleCatalogueWatcher watcher;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private RoleBitRegistry roleBitRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // committed, like a role created on another node whose invalidation was lost
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @ResourceLock("roleCatalogue")
+    void roleAddedWithoutInvalidationIsPickedUp() {
+        String name = "ROLE_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        roleService.findAll();
+        jdbcTemplate.update("INSERT INTO roles (name, bit_position) VALUES (?, 63)", name);
+        try {
+            assertEquals(0L, roleBitRegistry.maskOf(name));
+
+            watcher.check();
+
+            assertEquals(1L << 63, roleBitRegistry.maskOf(name));
+            assertTrue(roleService.findAll().stream().map(Role::getName).anyMatch(name::equals));
+        } finally {
+            jdbcTemplate.update("DELETE FROM role_user_counts WHERE role_id = (SELECT id FROM roles WHERE name = ?)", name);
+            jdbcTemplate.update("DELETE FROM roles WHERE name = ?", name);
+            watcher.check();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.kata.spring.boot_security.demo.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import ru.kata.spring.boot_security.demo.models.User;
+import ru.kata.spring.boot_security.demo.service.UserService;
+import ru.kata.spring.boot_security.demo.support.IntegrationTest;
+import ru.kata.spring.boot_security.demo.support.UserFixtures;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+@IntegrationTest
+class AdminControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void adminPanelListsUsers() throws Exception {
+        mockMvc.perform(get("/admin").with(admin()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin-panel"))
+                .andExpect(model().attributeExists("users", "allRoles", "newUser"));
+    }
+
+    @Test
+    void adminPanelIsForbiddenToUsers() throws Exception {
+        mockMvc.perform(get("/admin").with(as("user@example.com")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void createUserRedirectsToPanel() throws Exception {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+
+        mockMvc.perform(post("/admin").with(admin()).with(csrf())
+                        .param("username", "web-" + suffix)
+                        .param("email", "web-" + suffix + "@example.com")
+                        .param("password", "secret-password")
+                        .param("firstName", "Web")
+                        .param("lastName", "Test")
+                        .param("age", "30")
+                        .param("selectedRoles", "ROLE_USER"))
+                .andExpect(redirectedUrl("/admin"));
+
+        assertTrue(userService.findByEmail("web-" + suffix + "@example.com").isPresent());
+    }
+
+    @Test
+    void updateWithStaleVersionReportsConflict() throws Exception {
+        User user = userService.getUserByEmail(UserFixtures.email(3));
+
+        mockMvc.perform(post("/admin/update").with(admin()).with(csrf())
+                        .param("id", user.getId().toString())
+                        .param("version", String.valueOf(user.getVersion() + 1))
+                        .param("username", user.getUsername())
+                        .param("email", user.getEmail())
+                        .param("password", user.getPassword())
+                        .param("firstName", "Stale")
+                        .param("lastName", user.getLastName())
+                        .param("age", "30")
+                        .param("selectedRoles", "ROLE_USER"))
+                .andExpect(redirectedUrl("/admin"))
+                .andExpect(flash().attributeExists("error"));
+    }
+
+    @Test
+    void deleteUserRemovesUser() throws Exception {
+        User user = userService.getUserByEmail(UserFixtures.email(4));
+
+        mockMvc.perform(post("/admin/delete/" + user.getId()).with(admin()).with(csrf()))
+                .andExpect(redirectedUrl("/admin"));
+
+        assertTrue(userService.findByEmail(user.getEmail()).isEmpty());
+    }
+
+    @Test
+    void statisticsAreAvailableAsJson() throws Exception {
+        mockMvc.perform(get("/admin/stats").with(admin()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.roles[?(@.role == 'ROLE_USER')].users").exists());
+    }
+
+    private RequestPostProcessor admin() {
+        return as("admin@example.com");
+    }
+
+    private RequestPostProcessor as(String email) {
+        return user(userDetailsService.loadUserByUsername(email));
+    }
+}
@@ -0,0 +1,65 @@
+package ru.kata.spring.boot_security.demo.controllers;
+
+import org.hibernate.exception.JDBCConnectionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class DatabaseBusyHandlerTest {
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new FailingController())
+            .setControllerAdvice(new DatabaseBusyHandler())
+            .build();
+
+    @Test
+    void poolTimeoutIsServiceUnavailable() throws Exception {
+        mockMvc.perform(get("/timeout"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", DatabaseBusyHandler.RETRY_AFTER_SECONDS));
+    }
+
+    @Test
+    void bulkheadRejectionIsServiceUnavailable() throws Exception {
+        mockMvc.perform(get("/rejected"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void otherDatabaseFailuresAreNotMapped() {
+        assertThrows(Exception.class, () -> mockMvc.perform(get("/down")));
+    }
+
+    @RestController
+    static class FailingController {
+
+        @GetMapping("/timeout")
+        String timeout() {
+            SQLTransientConnectionException timeout = new SQLTransientConnectionException(
+                    "admin - Connection is not available, request timed out after 2000ms");
+            throw new CannotCreateTransactionException("Could not open JPA EntityManager for transaction",
+                    new JDBCConnectionException("Unable to acquire JDBC Connection", timeout));
+        }
+
+        @GetMapping("/rejected")
+        String rejected() {
+            throw new DataAccessResourceFailureException("Unable to acquire JDBC Connection",
+                    new SQLTransientConnectionException("admin pool has 16 threads waiting already"));
+        }
+
+        @GetMapping("/down")
+        String down() {
+            throw new DataAccessResourceFailureException("Connection refused");
+        }
+    }
+}
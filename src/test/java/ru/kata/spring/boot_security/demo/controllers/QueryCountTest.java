@@ -0,0 +1,171 @@
+package ru.kata.spring.boot_security.demo.controllers;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.annotation.Transactional;
+import ru.kata.spring.boot_security.demo.models.User;
+import ru.kata.spring.boot_security.demo.service.RoleService;
+import ru.kata.spring.boot_security.demo.service.UserService;
+import ru.kata.spring.boot_security.demo.support.IntegrationTest;
+import ru.kata.spring.boot_security.demo.support.QueryCounter;
+import ru.kata.spring.boot_security.demo.support.UserFixtures;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.authenticated;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets for hot paths, measured against {@code fixtures.users} seeded users:
+ * a path that starts loading roles per user, or adds a round trip, fails here.
+ * <p>
+ * The test transaction spans every request of a test, so entities loaded by one request
+ * would satisfy the next from the persistence context; {@link #startCounting()} clears it.
+ */
+@IntegrationTest
+class QueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // read-only, as in the application: RoleCatalogueCache is not filled inside a read-write transaction
+    @Test
+    @Transactional(readOnly = true)
+    @ResourceLock("roleCatalogue")
+    void adminPanelLoadsUsersAndRolesInOneQuery() throws Exception {
+        RequestPostProcessor admin = user(userDetailsService.loadUserByUsername("admin@example.com"));
+        // warms the role catalogue cache
+        mockMvc.perform(get("/admin").with(admin)).andExpect(status().isOk());
+        startCounting();
+
+        mockMvc.perform(get("/admin").with(admin)).andExpect(status().isOk());
+
+        QueryCounter.assertStatementCount(1);
+    }
+
+    // a role catalogue change empties the principal cache
+    @Test
+    @ResourceLock("roleCatalogue")
+    void loginLookupIsOneQueryThenCached() throws Exception {
+        String email = UserFixtures.email(8);
+        startCounting();
+
+        mockMvc.perform(formLogin("/process_login").userParameter("email").user(email).password(UserFixtures.PASSWORD))
+                .andExpect(authenticated());
+        QueryCounter.assertStatementCount(1);
+
+        startCounting();
+        mockMvc.perform(formLogin("/process_login").userParameter("email").user(email).password(UserFixtures.PASSWORD))
+                .andExpect(authenticated());
+        QueryCounter.assertStatementCount(0);
+    }
+
+    @Test
+    void userPageLoadsUserWithRolesInOneQuery() throws Exception {
+        RequestPostProcessor fixtureUser = user(userDetailsService.loadUserByUsername(UserFixtures.email(9)));
+        startCounting();
+
+        mockMvc.perform(get("/user").with(fixtureUser)).andExpect(status().isOk());
+
+        QueryCounter.assertStatementCount(1);
+    }
+
+    @Test
+    void updateUserIsOneSelectAndOneVersionedUpdate() {
+        User user = newUser("ROLE_USER");
+        User form = formFor(user);
+        form.setFirstName("Renamed");
+        startCounting();
+
+        userService.updateUser(form);
+        entityManager.flush();
+
+        QueryCounter.assertStatementCount(2);
+    }
+
+    @Test
+    void updateUserWithRoleChangeAddsLinkAndCounterStatements() {
+        User user = newUser("ROLE_USER");
+        User form = formFor(user);
+        form.setRoles(new HashSet<>(roleService.findRolesByNameIn(List.of("ROLE_ADMIN"))));
+        startCounting();
+
+        userService.updateUser(form);
+        entityManager.flush();
+
+        // plus one link delete and one link insert, not a rewrite of the user's links, and one counter update each way
+        QueryCounter.assertStatementCount(6);
+    }
+
+    @Test
+    void updateUserWithStaleVersionFailsBeforeWriting() {
+        User user = newUser("ROLE_USER");
+        User form = formFor(user);
+        form.setVersion(user.getVersion() + 1);
+        startCounting();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> userService.updateUser(form));
+
+        QueryCounter.assertStatementCount(1);
+    }
+
+    private User newUser(String roleName) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername("qc-" + suffix);
+        user.setEmail("qc-" + suffix + "@example.com");
+        user.setPassword("secret-password");
+        user.setFirstName("Query");
+        user.setLastName("Count");
+        user.setAge(30);
+        user.setRoles(new HashSet<>(roleService.findRolesByNameIn(List.of(roleName))));
+        userService.saveUser(user);
+        return user;
+    }
+
+    private static User formFor(User user) {
+        User form = new User();
+        form.setId(user.getId());
+        form.setVersion(user.getVersion());
+        form.setUsername(user.getUsername());
+        form.setEmail(user.getEmail());
+        form.setPassword(user.getPassword());
+        form.setFirstName(user.getFirstName());
+        form.setLastName(user.getLastName());
+        form.setAge(user.getAge());
+        form.setRoles(new HashSet<>(user.getRoles()));
+        return form;
+    }
+
+    // flushes first, so statements queued by the test's own setup are not counted
+    private void startCounting() {
+        entityManager.flush();
+        entityManager.clear();
+        QueryCounter.reset();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.kata.spring.boot_security.demo.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.kata.spring.boot_security.demo.support.IntegrationTest;
+import ru.kata.spring.boot_security.demo.support.UserFixtures;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.authenticated;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.unauthenticated;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrlPattern;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+@IntegrationTest
+class UserControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Test
+    void userPageShowsCurrentUser() throws Exception {
+        mockMvc.perform(get("/user").with(user(userDetailsService.loadUserByUsername(UserFixtures.email(5)))))
+                .andExpect(status().isOk())
+                .andExpect(view().name("user"))
+                .andExpect(model().attributeExists("user"));
+    }
+
+    @Test
+    void userPageRequiresLogin() throws Exception {
+        mockMvc.perform(get("/user"))
+                .andExpect(redirectedUrlPattern("**/login"));
+    }
+
+    @Test
+    void loginWithFixtureCredentials() throws Exception {
+        mockMvc.perform(formLogin("/process_login").userParameter("email")
+                        .user(UserFixtures.email(6)).password(UserFixtures.PASSWORD))
+                .andExpect(authenticated().withUsername(UserFixtures.email(6)));
+    }
+
+    @Test
+    void loginWithWrongPasswordFails() throws Exception {
+        mockMvc.perform(formLogin("/process_login").userParameter("email")
+                        .user(UserFixtures.email(7)).password("wrong-password"))
+                .andExpect(redirectedUrl("/login?error"))
+                .andExpect(unauthenticated());
+    }
+}
@@ -0,0 +1,122 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * One browser-like session against the running application: its own cookie jar
+ * (JSESSIONID) and the last CSRF token seen on a rendered page. Sessions share one
+ * HttpClient, so a login storm measures the server rather than the client opening a
+ * connection pool and selector thread per arrival.
+ */
+class AppClient {
+
+    private static final Pattern CSRF_INPUT = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final CookieManager cookies = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+    private volatile String csrfToken;
+
+    AppClient(HttpClient http, String baseUrl) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * The client every session of a run sends through. It has no cookie handler of its
+     * own: cookies belong to the session, not to the connection pool.
+     */
+    static HttpClient httpClient(Executor executor) {
+        return HttpClient.newBuilder()
+                .executor(executor)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+    }
+
+    /**
+     * Loads the login page for a token and posts the credentials.
+     *
+     * @return the redirect target chosen by SuccessUserHandler, e.g. "/admin"
+     */
+    String login(String email, String password) throws IOException, InterruptedException {
+        get("/login", 200);
+        HttpResponse<String> response = post("/process_login", Map.of("email", email, "password", password));
+        String location = response.headers().firstValue("Location").orElse("");
+        if (response.statusCode() != 302 || location.contains("/login")) {
+            throw new LoadTestException("login rejected: " + response.statusCode() + " " + location);
+        }
+        return URI.create(location).getPath();
+    }
+
+    HttpResponse<String> get(String path, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(request(path).GET());
+        expect(path, response, expectedStatus);
+        rememberCsrf(response.body());
+        return response;
+    }
+
+    HttpResponse<String> post(String path, Map<String, String> form) throws IOException, InterruptedException {
+        Map<String, String> body = new LinkedHashMap<>(form);
+        if (csrfToken != null) {
+            body.put("_csrf", csrfToken);
+        }
+        return send(request(path)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(encode(body))));
+    }
+
+    HttpResponse<String> postExpectingRedirect(String path, Map<String, String> form) throws IOException, InterruptedException {
+        HttpResponse<String> response = post(path, form);
+        expect(path, response, 302);
+        return response;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder builder) throws IOException, InterruptedException {
+        URI uri = builder.copy().build().uri();
+        cookies.get(uri, Map.of()).forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        HttpResponse<String> response = http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        cookies.put(uri, response.headers().map());
+        return response;
+    }
+
+    private void rememberCsrf(String html) {
+        Matcher matcher = CSRF_INPUT.matcher(html);
+        if (matcher.find()) {
+            csrfToken = matcher.group(1);
+        }
+    }
+
+    private static void expect(String path, HttpResponse<String> response, int expectedStatus) {
+        if (response.statusCode() != expectedStatus) {
+            throw new LoadTestException(path + " returned " + response.statusCode() + ", expected " + expectedStatus);
+        }
+    }
+
+    private static String encode(Map<String, String> form) {
+        return form.entrySet().stream()
+                .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+    }
+}
@@ -0,0 +1,209 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test over real HTTP, sessions and CSRF tokens. Excluded from the
+ * regular build; run it with {@code mvn test -Pload-test}. Every {@code loadtest.*}
+ * property from application-loadtest.properties can be overridden with {@code -D}.
+ * Reports land in {@code target/load-test/<SCENARIO>.json}.
+ */
+@Tag("load")
+@ActiveProfiles("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class EndToEndLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(EndToEndLoadTest.class);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${loadtest.users}")
+    private int userCount;
+
+    @Value("${loadtest.arrival-rate}")
+    private double arrivalRate;
+
+    @Value("${loadtest.duration}")
+    private Duration duration;
+
+    @Value("${loadtest.warm-up}")
+    private Duration warmUp;
+
+    @Value("${loadtest.admin-sessions}")
+    private int adminSessions;
+
+    @Value("${loadtest.user-sessions}")
+    private int userSessions;
+
+    @Value("${loadtest.max-in-flight}")
+    private int maxInFlight;
+
+    @Value("${loadtest.report-dir}")
+    private Path reportDir;
+
+    @Value("${loadtest.scenarios:LOGIN_STORM,USER_PAGE_VIEWS,ADMIN_CRUD}")
+    private List<LoadScenario> scenarios;
+
+    private HttpClient http;
+
+    @Test
+    void runScenarios() throws Exception {
+        List<Long> seededIds = new UserSeeder(jdbcTemplate, passwordEncoder).seed(userCount, "ROLE_USER");
+        OpenModelRunner warmUpRunner = new OpenModelRunner(arrivalRate, warmUp, maxInFlight);
+        OpenModelRunner runner = new OpenModelRunner(arrivalRate, duration, maxInFlight);
+        List<LoadReport> reports = new ArrayList<>();
+        ExecutorService httpExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "load-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        http = AppClient.httpClient(httpExecutor);
+
+        try {
+            for (LoadScenario scenario : scenarios) {
+                OpenModelRunner.Iteration iteration = switch (scenario) {
+                    case LOGIN_STORM -> loginStorm();
+                    case USER_PAGE_VIEWS -> userPageViews();
+                    case ADMIN_CRUD -> adminCrud(seededIds);
+                };
+                // JIT, connection pools and caches settle before anything is recorded
+                if (!warmUp.isZero()) {
+                    LoadReport discarded = warmUpRunner.run(scenario, iteration);
+                    logger.info("{}: warm-up {} ok / {} attempted", scenario, discarded.succeeded(), discarded.attempted());
+                }
+                LoadReport report = runner.run(scenario, iteration);
+                logger.info("{}: {} ok / {} attempted, p50={}ms p99={}ms, error rate {}",
+                        scenario, report.succeeded(), report.attempted(),
+                        report.latencyMillis().p50(), report.latencyMillis().p99(), report.errorRate());
+                reports.add(report);
+            }
+        } finally {
+            httpExecutor.shutdownNow();
+        }
+
+        writeReports(reports);
+        assertTrue(reports.stream().allMatch(r -> r.attempted() > 0), "every scenario must have produced arrivals");
+    }
+
+    private OpenModelRunner.Iteration loginStorm() {
+        return () -> {
+            AppClient client = new AppClient(http, baseUrl());
+            String email = UserSeeder.email(ThreadLocalRandom.current().nextInt(userCount));
+            String target = client.login(email, UserSeeder.PASSWORD);
+            client.get(target, 200);
+        };
+    }
+
+    private OpenModelRunner.Iteration userPageViews() throws IOException, InterruptedException {
+        List<AppClient> sessions = new ArrayList<>();
+        for (int i = 0; i < userSessions; i++) {
+            AppClient client = new AppClient(http, baseUrl());
+            client.login(UserSeeder.email(i % userCount), UserSeeder.PASSWORD);
+            sessions.add(client);
+        }
+        return () -> sessions.get(ThreadLocalRandom.current().nextInt(sessions.size())).get("/user", 200);
+    }
+
+    private OpenModelRunner.Iteration adminCrud(List<Long> seededIds) throws IOException, InterruptedException {
+        List<AppClient> sessions = new ArrayList<>();
+        for (int i = 0; i < adminSessions; i++) {
+            AppClient client = new AppClient(http, baseUrl());
+            client.get(client.login("admin@example.com", "admin"), 200);
+            sessions.add(client);
+        }
+        // updates touch the lower half of the seeded users, deletes consume the upper half from the top
+        int half = seededIds.size() / 2;
+        AtomicInteger deleteCursor = new AtomicInteger(seededIds.size());
+        AtomicLong created = new AtomicLong();
+
+        return () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            AppClient admin = sessions.get(random.nextInt(sessions.size()));
+            int roll = random.nextInt(100);
+            if (roll < 40) {
+                admin.get("/admin", 200);
+            } else if (roll < 65) {
+                long n = created.incrementAndGet();
+                admin.postExpectingRedirect("/admin", userForm(null, "lt-new-" + n));
+            } else if (roll < 85 && half > 0) {
+                int index = random.nextInt(half);
+                Map<String, String> form = userForm(seededIds.get(index), "lt-user-" + index);
+                // the version the admin page would have rendered just now
+                form.put("version", String.valueOf(jdbcTemplate.queryForObject(
+                        "SELECT version FROM users WHERE id = ?", Long.class, seededIds.get(index))));
+                admin.postExpectingRedirect("/admin/update", form);
+            } else {
+                int index = deleteCursor.decrementAndGet();
+                if (index < half) {
+                    admin.get("/admin", 200);
+                    return;
+                }
+                admin.postExpectingRedirect("/admin/delete/" + seededIds.get(index), Map.of());
+            }
+        };
+    }
+
+    private static Map<String, String> userForm(Long id, String username) {
+        Map<String, String> form = new LinkedHashMap<>();
+        if (id != null) {
+            form.put("id", id.toString());
+        }
+        form.put("username", username);
+        form.put("password", UserSeeder.PASSWORD);
+        form.put("firstName", "Load");
+        form.put("lastName", "Admin");
+        form.put("age", "30");
+        form.put("email", username + "@example.com");
+        form.put("selectedRoles", "ROLE_USER");
+        return form;
+    }
+
+    private void writeReports(List<LoadReport> reports) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Files.createDirectories(reportDir);
+        for (LoadReport report : reports) {
+            mapper.writeValue(reportDir.resolve(report.scenario() + ".json").toFile(), report);
+        }
+        mapper.writeValue(reportDir.resolve("summary.json").toFile(), reports);
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + port;
+    }
+}
@@ -0,0 +1,86 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects per-iteration outcomes of one scenario run. Latency is measured from the
+ * <em>scheduled</em> arrival time, not from when a worker picked the task up, so a
+ * saturated server shows up in the percentiles instead of being hidden by queueing.
+ */
+class LatencyRecorder {
+
+    private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+    private final Map<String, LongAdder> errorsByType = new ConcurrentHashMap<>();
+    private final AtomicLong attempted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    void arrival() {
+        attempted.incrementAndGet();
+    }
+
+    void success(long scheduledAtNanos) {
+        latenciesNanos.add(System.nanoTime() - scheduledAtNanos);
+    }
+
+    void failure(Throwable error) {
+        String type = error instanceof LoadTestException
+                ? error.getMessage().replaceAll("/\\d+", "/{id}")
+                : error.getClass().getSimpleName();
+        errorsByType.computeIfAbsent(type, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * An arrival still running when the driver gave up waiting for the run to drain.
+     */
+    void unfinished() {
+        errorsByType.computeIfAbsent("unfinished", k -> new LongAdder()).increment();
+    }
+
+    /**
+     * An arrival the driver could not even start because {@code max-in-flight} was reached.
+     */
+    void drop() {
+        dropped.incrementAndGet();
+    }
+
+    LoadReport report(LoadScenario scenario, double targetRate, double elapsedSeconds) {
+        long[] sorted = latenciesNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<String, Long> errors = new TreeMap<>();
+        errorsByType.forEach((type, count) -> errors.put(type, count.sum()));
+        long errorCount = errors.values().stream().mapToLong(Long::longValue).sum() + dropped.get();
+        long attempts = attempted.get();
+
+        return new LoadReport(
+                scenario.name(),
+                targetRate,
+                elapsedSeconds,
+                attempts,
+                sorted.length,
+                errorCount,
+                dropped.get(),
+                attempts == 0 ? 0.0 : (double) errorCount / attempts,
+                elapsedSeconds == 0 ? 0.0 : sorted.length / elapsedSeconds,
+                new LoadReport.Latency(
+                        percentileMillis(sorted, 50),
+                        percentileMillis(sorted, 90),
+                        percentileMillis(sorted, 95),
+                        percentileMillis(sorted, 99),
+                        sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1_000_000.0,
+                        sorted.length == 0 ? 0.0 : Arrays.stream(sorted).average().orElse(0) / 1_000_000.0),
+                errors);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+import java.util.Map;
+
+/**
+ * Machine-readable result of one scenario run, written as {@code <scenario>.json}
+ * so two releases can be compared with a plain JSON diff.
+ */
+record LoadReport(String scenario,
+                  double targetArrivalsPerSecond,
+                  double elapsedSeconds,
+                  long attempted,
+                  long succeeded,
+                  long errors,
+                  long dropped,
+                  double errorRate,
+                  double throughputPerSecond,
+                  Latency latencyMillis,
+                  Map<String, Long> errorsByType) {
+
+    record Latency(double p50, double p90, double p95, double p99, double max, double mean) {
+    }
+}
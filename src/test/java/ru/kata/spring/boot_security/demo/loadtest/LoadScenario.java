@@ -0,0 +1,16 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+enum LoadScenario {
+    /**
+     * Fresh session per arrival: GET /login, POST /process_login, follow SuccessUserHandler's redirect target.
+     */
+    LOGIN_STORM,
+    /**
+     * Already authenticated users reloading /user.
+     */
+    USER_PAGE_VIEWS,
+    /**
+     * Admin sessions mixing the /admin list with create, update and delete posts.
+     */
+    ADMIN_CRUD
+}
@@ -0,0 +1,11 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+/**
+ * An iteration that reached the server but did not get the response the scenario expects.
+ */
+class LoadTestException extends RuntimeException {
+
+    LoadTestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-model load driver: arrivals are started at a fixed rate regardless of how many
+ * earlier ones are still running, which is how real login storms behave. A closed
+ * loop of N threads would slow down together with the server and under-report latency.
+ */
+class OpenModelRunner {
+
+    @FunctionalInterface
+    interface Iteration {
+        void run() throws Exception;
+    }
+
+    private final double arrivalsPerSecond;
+    private final Duration duration;
+    private final int maxInFlight;
+
+    OpenModelRunner(double arrivalsPerSecond, Duration duration, int maxInFlight) {
+        this.arrivalsPerSecond = arrivalsPerSecond;
+        this.duration = duration;
+        this.maxInFlight = maxInFlight;
+    }
+
+    LoadReport run(LoadScenario scenario, Iteration iteration) throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger threadIds = new AtomicInteger();
+        // an arrival is recorded by whichever side removes it first: its worker or the shutdown below
+        Map<Long, Long> pending = new ConcurrentHashMap<>();
+        AtomicLong arrivalIds = new AtomicLong();
+        ExecutorService workers = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "load-" + scenario.name().toLowerCase() + "-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long intervalNanos = (long) (1_000_000_000L / arrivalsPerSecond);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long nextArrival = start;
+
+        try {
+            while (nextArrival < end) {
+                long sleep = nextArrival - System.nanoTime();
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+                long scheduledAt = nextArrival;
+                nextArrival += intervalNanos;
+                recorder.arrival();
+
+                if (!inFlight.tryAcquire()) {
+                    recorder.drop();
+                    continue;
+                }
+                long id = arrivalIds.incrementAndGet();
+                pending.put(id, scheduledAt);
+                workers.execute(() -> {
+                    try {
+                        iteration.run();
+                        if (pending.remove(id) != null) {
+                            recorder.success(scheduledAt);
+                        }
+                    } catch (Exception e) {
+                        if (pending.remove(id) != null) {
+                            recorder.failure(e);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                for (Long id : pending.keySet()) {
+                    if (pending.remove(id) != null) {
+                        recorder.unfinished();
+                    }
+                }
+                workers.shutdownNow();
+            }
+        }
+
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return recorder.report(scenario, arrivalsPerSecond, elapsedSeconds);
+    }
+}
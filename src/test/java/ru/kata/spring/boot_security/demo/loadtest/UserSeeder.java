@@ -0,0 +1,53 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk-inserts load-test users straight through JDBC. Going through UserService would
+ * BCrypt every password, which takes minutes for 100k users; here one hash is shared.
+ */
+class UserSeeder {
+
+    static final String PASSWORD = "load-test-password";
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+
+    UserSeeder(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    static String email(int index) {
+        return "lt-user-" + index + "@example.com";
+    }
+
+    /**
+     * @return ids of the seeded users, in insertion order
+     */
+    List<Long> seed(int count, String roleName) {
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE name = ?", Long.class, roleName);
+        String hash = passwordEncoder.encode(PASSWORD);
+
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < Math.min(from + BATCH_SIZE, count); i++) {
+                rows.add(new Object[]{"lt-user-" + i, hash, "Load", "User" + i, 20 + i % 50, email(i), 0L});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO users (username, password, first_name, last_name, age, email, version) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    rows);
+        }
+
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE username LIKE 'lt-user-%' ORDER BY id", Long.class);
+        jdbcTemplate.batchUpdate("INSERT INTO users_roles (user_id, role_id) VALUES (?, ?)",
+                ids.stream().map(id -> new Object[]{id, roleId}).toList());
+        return ids;
+    }
+}
@@ -0,0 +1,143 @@
+package ru.kata.spring.boot_security.demo.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogBudgetFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        logger = context.getLogger("app.noisy.Component");
+        logger.setLevel(Level.DEBUG);
+    }
+
+    @Test
+    void budgetAdmitsAtMostLimitPerSecond() {
+        LogBudgetFilter filter = filter("app.noisy=3", "");
+        List<FilterReply> replies;
+        long second;
+        do {
+            second = System.currentTimeMillis() / 1000;
+            filter.start();
+            replies = decideEvents(filter, Level.INFO, 5);
+        } while (second != System.currentTimeMillis() / 1000);
+
+        assertEquals(List.of(FilterReply.NEUTRAL, FilterReply.NEUTRAL, FilterReply.NEUTRAL,
+                FilterReply.DENY, FilterReply.DENY), replies);
+    }
+
+    @Test
+    void samplingKeepsOneEventInN() {
+        LogBudgetFilter filter = filter("", "app.noisy=3");
+
+        List<FilterReply> replies = decideEvents(filter, Level.INFO, 7);
+
+        assertEquals(List.of(FilterReply.NEUTRAL, FilterReply.DENY, FilterReply.DENY,
+                FilterReply.NEUTRAL, FilterReply.DENY, FilterReply.DENY, FilterReply.NEUTRAL), replies);
+    }
+
+    @Test
+    void errorIsNeverDropped() {
+        LogBudgetFilter filter = filter("app.noisy=1", "app.noisy=1000");
+        decideEvents(filter, Level.INFO, 1);
+
+        List<FilterReply> replies = decideEvents(filter, Level.ERROR, 10);
+
+        assertEquals(List.of(FilterReply.NEUTRAL), replies.stream().distinct().toList());
+    }
+
+    @Test
+    void guardedEventIsCountedOnce() {
+        LogBudgetFilter filter = filter("", "app.noisy=2");
+        ListAppender<ILoggingEvent> appender = listen(filter);
+
+        for (int i = 0; i < 4; i++) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("noisy.event {}", i);
+            }
+        }
+
+        assertEquals(List.of("noisy.event 0", "noisy.event 2"), appender.list.stream()
+                .map(ILoggingEvent::getFormattedMessage).toList());
+    }
+
+    @Test
+    void fluentEventIsCountedOnce() {
+        LogBudgetFilter filter = filter("", "app.noisy=2");
+        ListAppender<ILoggingEvent> appender = listen(filter);
+
+        for (int i = 0; i < 4; i++) {
+            logger.atInfo().setMessage("noisy.event").addKeyValue("i", i).log();
+        }
+
+        assertEquals(List.of(0, 2), appender.list.stream()
+                .map(event -> (Integer) event.getKeyValuePairs().get(0).value).toList());
+    }
+
+    @Test
+    void mixedCallsOnOneThreadStayWithinBudget() {
+        List<String> logged;
+        long second;
+        do {
+            second = System.currentTimeMillis() / 1000;
+            context.resetTurboFilterList();
+            logger.detachAndStopAllAppenders();
+            ListAppender<ILoggingEvent> appender = listen(filter("app.noisy=10", ""));
+            for (int i = 0; i < 5; i++) {
+                logger.atInfo().setMessage("fluent").log();
+                logger.debug("classic after fluent");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("guarded");
+                }
+                // a level check that logs nothing
+                logger.isInfoEnabled();
+                logger.warn("classic after check");
+                logger.info("classic");
+            }
+            logged = appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+        } while (second != System.currentTimeMillis() / 1000);
+
+        // 10 charges: six in the first round, then the fluent check, the classic call, the guard and the bare check
+        assertEquals(List.of("fluent", "classic after fluent", "guarded", "classic after check", "classic",
+                "fluent", "classic after fluent", "guarded"), logged);
+    }
+
+    private LogBudgetFilter filter(String budgets, String sampling) {
+        LogBudgetFilter filter = new LogBudgetFilter();
+        filter.setContext(context);
+        filter.setBudgets(budgets);
+        filter.setSampling(sampling);
+        filter.start();
+        return filter;
+    }
+
+    private ListAppender<ILoggingEvent> listen(LogBudgetFilter filter) {
+        context.addTurboFilter(filter);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        return appender;
+    }
+
+    private List<FilterReply> decideEvents(LogBudgetFilter filter, Level level, int count) {
+        List<FilterReply> replies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            replies.add(filter.decide(null, logger, level, "event {}", new Object[]{i}, null));
+        }
+        return replies;
+    }
+}
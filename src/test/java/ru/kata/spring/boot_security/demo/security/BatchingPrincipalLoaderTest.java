@@ -0,0 +1,153 @@
+package ru.kata.spring.boot_security.demo.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import ru.kata.spring.boot_security.demo.cache.PrincipalCache;
+import ru.kata.spring.boot_security.demo.service.UserService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchingPrincipalLoaderTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final PrincipalCache principalCache = new PrincipalCache(Duration.ofMinutes(5), 100);
+
+    @Test
+    void loneLookupDoesNotWaitForBatch() {
+        when(userService.findAllByEmailIn(any())).thenReturn(List.of());
+        BatchingPrincipalLoader loader = loader(Duration.ofSeconds(30), Duration.ofSeconds(30));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> loader.load("alone@example.com"));
+    }
+
+    @Test
+    void concurrentLookupsShareOneQuery() throws Exception {
+        int lookups = 8;
+        CountDownLatch release = new CountDownLatch(1);
+        List<Collection<String>> queries = new CopyOnWriteArrayList<>();
+        when(userService.findAllByEmailIn(any())).thenAnswer(invocation -> {
+            Collection<String> emails = List.copyOf(invocation.getArgument(0));
+            queries.add(emails);
+            if (emails.contains("busy@example.com")) {
+                release.await();
+            }
+            // stored with different case than looked up
+            return emails.stream().map(email -> user(email.toUpperCase(Locale.ROOT))).toList();
+        });
+        BatchingPrincipalLoader loader = new BatchingPrincipalLoader(userService, principalCache, lookups,
+                Duration.ofSeconds(10), Duration.ofSeconds(30));
+        // keeps a load in flight, so the lookups below wait for each other instead of going alone
+        CompletableFuture<?> busy = CompletableFuture.runAsync(() -> loader.load("busy@example.com"));
+        while (queries.isEmpty()) {
+            Thread.sleep(5);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(lookups);
+        try {
+            List<CompletableFuture<Optional<UserDetails>>> results = new ArrayList<>();
+            for (int i = 0; i < lookups; i++) {
+                String email = "user-" + i + "@example.com";
+                results.add(CompletableFuture.supplyAsync(() -> loader.load(email), executor));
+            }
+            Set<UserDetails> principals = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int i = 0; i < lookups; i++) {
+                UserDetails details = results.get(i).get(5, TimeUnit.SECONDS).orElseThrow();
+                assertEquals("USER-" + i + "@EXAMPLE.COM", details.getUsername());
+                principals.add(details);
+            }
+            assertEquals(lookups, principals.size());
+        } finally {
+            release.countDown();
+            busy.get(5, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+
+        assertEquals(2, queries.size());
+        assertEquals(lookups, queries.get(1).size());
+    }
+
+    @Test
+    void errorReachesEveryWaiter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(userService.findAllByEmailIn(any())).thenAnswer(invocation -> {
+            release.await();
+            throw new LinkageError("boom");
+        });
+        BatchingPrincipalLoader loader = loader(Duration.ZERO, Duration.ofSeconds(30));
+
+        CompletableFuture<?> leader = CompletableFuture.runAsync(() -> loader.load("same@example.com"));
+        CompletableFuture<?> follower = CompletableFuture.runAsync(() -> loader.load("same@example.com"));
+        awaitDeduplicated(loader);
+        release.countDown();
+
+        for (CompletableFuture<?> waiter : List.of(leader, follower)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(LinkageError.class, e.getCause());
+        }
+    }
+
+    @Test
+    void followerGivesUpAfterTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(userService.findAllByEmailIn(any())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        BatchingPrincipalLoader loader = loader(Duration.ZERO, Duration.ofMillis(100));
+
+        CompletableFuture<?> leader = CompletableFuture.runAsync(() -> loader.load("slow@example.com"));
+        try {
+            CompletableFuture<?> follower = CompletableFuture.runAsync(() -> loader.load("slow@example.com"));
+            awaitDeduplicated(loader);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        } finally {
+            release.countDown();
+            leader.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static ru.kata.spring.boot_security.demo.models.User user(String email) {
+        ru.kata.spring.boot_security.demo.models.User user = new ru.kata.spring.boot_security.demo.models.User();
+        user.setEmail(email);
+        user.setPassword("{noop}secret");
+        return user;
+    }
+
+    private BatchingPrincipalLoader loader(Duration maxWait, Duration timeout) {
+        return new BatchingPrincipalLoader(userService, principalCache, 64, maxWait, timeout);
+    }
+
+    private static void awaitDeduplicated(BatchingPrincipalLoader loader) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loader.stats().deduplicated() == 0) {
+            assertTrue(System.nanoTime() < deadline, "second lookup never joined the first");
+            Thread.sleep(5);
+        }
+    }
+}
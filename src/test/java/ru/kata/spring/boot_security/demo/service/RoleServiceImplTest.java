@@ -0,0 +1,143 @@
+package ru.kata.spring.boot_security.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.kata.spring.boot_security.demo.cache.InvalidationEvent;
+import ru.kata.spring.boot_security.demo.cache.RoleCatalogueCache;
+import ru.kata.spring.boot_security.demo.models.Role;
+import ru.kata.spring.boot_security.demo.security.RoleBitRegistry;
+import ru.kata.spring.boot_security.demo.support.IntegrationTest;
+import ru.kata.spring.boot_security.demo.support.QueryCounter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@IntegrationTest
+class RoleServiceImplTest {
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private RoleStatisticsService roleStatisticsService;
+
+    @Autowired
+    private RoleBitRegistry roleBitRegistry;
+
+    @Autowired
+    private RoleCatalogueCache roleCatalogueCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void findAllContainsSeededRoles() {
+        List<String> names = roleService.findAll().stream().map(Role::getName).toList();
+
+        assertTrue(names.containsAll(List.of("ROLE_ADMIN", "ROLE_USER")));
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    @ResourceLock("roleCatalogue")
+    void findAllIsServedFromCacheOnceLoaded() {
+        roleService.findAll();
+        QueryCounter.reset();
+
+        roleService.findAll();
+
+        QueryCounter.assertStatementCount(0);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @ResourceLock("roleCatalogue")
+    void roleOfRolledBackTransactionIsNotCached() {
+        String name = "ROLE_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            roleService.save(new Role(name));
+            // empty, so the lookup below is the one that would fill it
+            roleCatalogueCache.onInvalidation(new InvalidationEvent("test", 0L, Set.of(), Set.of(), 1L, false));
+            assertTrue(roleService.findAll().stream().anyMatch(role -> role.getName().equals(name)));
+            status.setRollbackOnly();
+        });
+
+        assertFalse(roleService.findAll().stream().anyMatch(role -> role.getName().equals(name)));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @ResourceLock("roleCatalogue")
+    void committedRoleIsMappedAfterCommit() {
+        String name = "ROLE_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        try {
+            roleService.save(new Role(name));
+
+            int bit = roleService.findByName(name).orElseThrow().getBitPosition();
+            assertEquals(1L << bit, roleBitRegistry.maskOf(name));
+        } finally {
+            jdbcTemplate.update("DELETE FROM role_user_counts WHERE role_id = (SELECT id FROM roles WHERE name = ?)", name);
+            jdbcTemplate.update("DELETE FROM roles WHERE name = ?", name);
+            roleBitRegistry.refresh();
+        }
+    }
+
+    @Test
+    void findRolesByNameInIgnoresUnknownNames() {
+        List<Role> roles = roleService.findRolesByNameIn(List.of("ROLE_ADMIN", "ROLE_MISSING"));
+
+        assertEquals(1, roles.size());
+        assertEquals("ROLE_ADMIN", roles.get(0).getName());
+    }
+
+    @Test
+    void saveCreatesEmptyCounter() {
+        String name = "ROLE_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+
+        roleService.save(new Role(name));
+
+        assertTrue(roleService.findByName(name).isPresent());
+        assertTrue(roleStatisticsService.getStatistics(Duration.ZERO).roles().stream()
+                .anyMatch(count -> count.role().equals(name) && count.users() == 0));
+    }
+
+    @Test
+    void saveAssignsFreeBit() {
+        String name = "ROLE_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+
+        roleService.save(new Role(name));
+
+        Integer bit = roleService.findByName(name).orElseThrow().getBitPosition();
+        assertNotNull(bit);
+        assertNotEquals(roleService.findByName("ROLE_ADMIN").orElseThrow().getBitPosition(), bit);
+        assertNotEquals(roleService.findByName("ROLE_USER").orElseThrow().getBitPosition(), bit);
+    }
+
+    @Test
+    void unknownRoleLookupDoesNotQuery() {
+        QueryCounter.reset();
+
+        assertEquals(0L, roleBitRegistry.maskOf("ROLE_MISSING"));
+        assertEquals(0L, roleBitRegistry.maskOf("ROLE_MISSING"));
+
+        QueryCounter.assertStatementCount(0);
+    }
+}
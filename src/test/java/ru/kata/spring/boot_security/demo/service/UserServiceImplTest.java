@@ -0,0 +1,163 @@
+package ru.kata.spring.boot_security.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.kata.spring.boot_security.demo.models.Role;
+import ru.kata.spring.boot_security.demo.models.User;
+import ru.kata.spring.boot_security.demo.repository.UserRepository;
+import ru.kata.spring.boot_security.demo.support.IntegrationTest;
+import ru.kata.spring.boot_security.demo.support.UserFixtures;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@IntegrationTest
+class UserServiceImplTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private RoleStatisticsService roleStatisticsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void saveUserEncodesPasswordAndCountsRoles() {
+        long before = usersWithRole("ROLE_USER");
+
+        User user = newUser("ROLE_USER");
+        userService.saveUser(user);
+
+        User saved = userService.getUserByEmail(user.getEmail());
+        assertTrue(passwordEncoder.matches("secret-password", saved.getPassword()));
+        assertEquals(before + 1, usersWithRole("ROLE_USER"));
+    }
+
+    @Test
+    void saveUserRejectsTakenEmail() {
+        User user = newUser("ROLE_USER");
+        user.setEmail(UserFixtures.email(0));
+
+        assertThrows(IllegalArgumentException.class, () -> userService.saveUser(user));
+    }
+
+    @Test
+    void updateUserMovesRoleCounters() {
+        User user = newUser("ROLE_USER");
+        userService.saveUser(user);
+        long admins = usersWithRole("ROLE_ADMIN");
+        long users = usersWithRole("ROLE_USER");
+
+        User form = formFor(user);
+        form.setRoles(roles("ROLE_ADMIN"));
+        userService.updateUser(form);
+        userRepository.flush();
+
+        assertEquals(admins + 1, usersWithRole("ROLE_ADMIN"));
+        assertEquals(users - 1, usersWithRole("ROLE_USER"));
+    }
+
+    @Test
+    void updateUserKeepsPasswordHashWhenUnchanged() {
+        User user = newUser("ROLE_USER");
+        userService.saveUser(user);
+        String hash = user.getPassword();
+
+        User form = formFor(user);
+        form.setFirstName("Renamed");
+        userService.updateUser(form);
+
+        User updated = userService.getUserById(user.getId());
+        assertEquals("Renamed", updated.getFirstName());
+        assertEquals(hash, updated.getPassword());
+    }
+
+    @Test
+    void updateUserRejectsStaleVersion() {
+        User user = newUser("ROLE_USER");
+        userService.saveUser(user);
+
+        User form = formFor(user);
+        form.setVersion(user.getVersion() + 1);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> userService.updateUser(form));
+    }
+
+    @Test
+    void deleteUserHidesUserAndDecrementsCounters() {
+        User user = newUser("ROLE_USER", "ROLE_ADMIN");
+        userService.saveUser(user);
+        long admins = usersWithRole("ROLE_ADMIN");
+
+        userService.deleteUser(user.getId());
+        userService.deleteUser(user.getId());
+
+        assertTrue(userService.findByEmail(user.getEmail()).isEmpty());
+        assertEquals(admins - 1, usersWithRole("ROLE_ADMIN"));
+    }
+
+    @Test
+    void findAllByEmailInLoadsUsersWithRoles() {
+        List<User> users = userService.findAllByEmailIn(List.of(UserFixtures.email(1), UserFixtures.email(2), "missing@example.com"));
+
+        assertEquals(2, users.size());
+        users.forEach(user -> assertNotEquals(0, user.getRoles().size()));
+    }
+
+    private User newUser(String... roleNames) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername("svc-" + suffix);
+        user.setEmail("svc-" + suffix + "@example.com");
+        user.setPassword("secret-password");
+        user.setFirstName("Service");
+        user.setLastName("Test");
+        user.setAge(30);
+        user.setRoles(roles(roleNames));
+        return user;
+    }
+
+    private User formFor(User user) {
+        User form = new User();
+        form.setId(user.getId());
+        form.setVersion(user.getVersion());
+        form.setUsername(user.getUsername());
+        form.setEmail(user.getEmail());
+        form.setPassword(user.getPassword());
+        form.setFirstName(user.getFirstName());
+        form.setLastName(user.getLastName());
+        form.setAge(user.getAge());
+        form.setRoles(new HashSet<>(user.getRoles()));
+        return form;
+    }
+
+    private Set<Role> roles(String... names) {
+        return new HashSet<>(roleService.findRolesByNameIn(List.of(names)));
+    }
+
+    private long usersWithRole(String role) {
+        return roleStatisticsService.getStatistics(Duration.ZERO).roles().stream()
+                .filter(count -> count.role().equals(role))
+                .findFirst()
+                .orElseThrow()
+                .users();
+    }
+}
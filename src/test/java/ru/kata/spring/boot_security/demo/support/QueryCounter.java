@@ -0,0 +1,40 @@
+package ru.kata.spring.boot_security.demo.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Records the SQL Hibernate prepares on the current thread; registered through
+ * {@code hibernate.session_factory.statement_inspector} in application-test.properties.
+ * Per-thread, so tests running in parallel do not see each other's statements. MockMvc
+ * handles the request on the test thread, which makes controller paths countable too.
+ * JdbcTemplate statements bypass Hibernate and are not counted.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> statements = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        statements.get().add(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        statements.get().clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(statements.get());
+    }
+
+    public static void assertStatementCount(int expected) {
+        List<String> recorded = statements();
+        assertEquals(expected, recorded.size(),
+                () -> "Expected " + expected + " statements, got " + recorded.size() + ":\n" + String.join("\n", recorded));
+    }
+}
@@ -0,0 +1,124 @@
+package ru.kata.spring.boot_security.demo.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import ru.kata.spring.boot_security.demo.service.RoleStatisticsService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seeds {@code fixtures.users} users once per test context, after DataInitializer has
+ * created the roles. Rows go in through batched JDBC with one shared password hash, so a
+ * million users take seconds rather than hours of BCrypt. Seeded rows are committed and
+ * shared by all tests, which must treat them as read-only.
+ * <p>
+ * {@code fixtures.role-mix} assigns role sets by weight: with
+ * {@code ROLE_USER=90,ROLE_USER+ROLE_ADMIN=10}, user i gets both roles when
+ * {@code i % 100 >= 90}. The mix is deterministic, so counts can be asserted.
+ */
+@Component
+@Profile("test")
+public class UserFixtures {
+
+    public static final String PASSWORD = "fixture-password";
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final RoleStatisticsService roleStatisticsService;
+    private final int userCount;
+    private final Map<List<String>, Integer> roleMix;
+    private final int totalWeight;
+
+    public UserFixtures(JdbcTemplate jdbcTemplate,
+                        PasswordEncoder passwordEncoder,
+                        RoleStatisticsService roleStatisticsService,
+                        @Value("${fixtures.users:1000}") int userCount,
+                        @Value("${fixtures.role-mix:ROLE_USER=100}") String roleMix) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.roleStatisticsService = roleStatisticsService;
+        this.userCount = userCount;
+        this.roleMix = parse(roleMix);
+        this.totalWeight = this.roleMix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public static String email(int index) {
+        return "fx-user-" + index + "@example.com";
+    }
+
+    public int userCount() {
+        return userCount;
+    }
+
+    public String randomEmail() {
+        return email(ThreadLocalRandom.current().nextInt(userCount));
+    }
+
+    public List<String> rolesOf(int index) {
+        int slot = index % totalWeight;
+        for (Map.Entry<List<String>, Integer> entry : roleMix.entrySet()) {
+            if (slot < entry.getValue()) {
+                return entry.getKey();
+            }
+            slot -= entry.getValue();
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        Map<String, Long> roleIds = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM roles", rs -> {
+            roleIds.put(rs.getString("name"), rs.getLong("id"));
+        });
+        String hash = passwordEncoder.encode(PASSWORD);
+
+        long lastSeededId = 0;
+        for (int from = 0; from < userCount; from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, userCount);
+            List<Object[]> users = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                users.add(new Object[]{"fx-user-" + i, hash, "Fixture", "User" + i, 18 + i % 60, email(i), 0L});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO users (username, password, first_name, last_name, age, email, version) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    users);
+
+            Map<String, Long> ids = new LinkedHashMap<>();
+            jdbcTemplate.query("SELECT id, email FROM users WHERE email LIKE 'fx-user-%' AND id > ?",
+                    rs -> {
+                        ids.put(rs.getString("email"), rs.getLong("id"));
+                    },
+                    lastSeededId);
+            List<Object[]> links = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                Long userId = ids.get(email(i));
+                for (String role : rolesOf(i)) {
+                    links.add(new Object[]{userId, roleIds.get(role)});
+                }
+                lastSeededId = Math.max(lastSeededId, userId);
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO users_roles (user_id, role_id) VALUES (?, ?)", links);
+        }
+        roleStatisticsService.reconcile();
+    }
+
+    private static Map<List<String>, Integer> parse(String spec) {
+        Map<List<String>, Integer> mix = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.split("=");
+            mix.put(List.of(parts[0].trim().split("\\+")), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+}